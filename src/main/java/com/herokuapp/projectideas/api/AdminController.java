@@ -0,0 +1,41 @@
+package com.herokuapp.projectideas.api;
+
+import com.herokuapp.projectideas.database.Database;
+import com.herokuapp.projectideas.database.exception.DatabaseException;
+import com.herokuapp.projectideas.search.IndexController;
+import java.util.concurrent.Executor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+public class AdminController {
+
+    @Autowired
+    Database database;
+
+    @Autowired
+    IndexController indexController;
+
+    @Autowired
+    Executor taskExecutor;
+
+    /**
+     * Rebuilds the search indexes from the database in the background.
+     * Indexes are otherwise only caught up incrementally at startup.
+     */
+    @PostMapping("/api/admin/index/rebuild")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void rebuildSearchIndexes(
+        @RequestHeader("authorization") String userId
+    ) throws DatabaseException {
+        if (!database.isUserAdmin(userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+        taskExecutor.execute(() -> indexController.rebuildAllIndexes());
+    }
+}
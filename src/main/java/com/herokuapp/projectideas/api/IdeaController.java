@@ -9,9 +9,11 @@ import com.herokuapp.projectideas.database.document.project.Project;
 import com.herokuapp.projectideas.database.document.user.User;
 import com.herokuapp.projectideas.database.document.user.UsernameIdPair;
 import com.herokuapp.projectideas.database.exception.DatabaseException;
+import com.herokuapp.projectideas.database.exception.InvalidCursorException;
 import com.herokuapp.projectideas.dto.DTOMapper;
 import com.herokuapp.projectideas.dto.post.PostCommentDTO;
 import com.herokuapp.projectideas.dto.post.PostIdeaDTO;
+import com.herokuapp.projectideas.dto.post.PreviewIdeaDTO;
 import com.herokuapp.projectideas.dto.post.PreviewIdeaPageDTO;
 import com.herokuapp.projectideas.dto.post.ViewCommentDTO;
 import com.herokuapp.projectideas.dto.post.ViewIdeaDTO;
@@ -51,28 +53,64 @@ public class IdeaController {
     public PreviewIdeaPageDTO getIdeas(
         @RequestHeader(value = "authorization", required = false) String userId,
         @RequestParam("page") int pageNum,
-        @RequestParam(value = "sort", required = false) String sort
+        @RequestParam(value = "sort", required = false) String sort,
+        @RequestParam(value = "tagCounts", defaultValue = "0") int tagCount
     ) {
-        if (sort == null || sort.equals("hotness")) {
-            return searchController.getIdeaPageByHotness(pageNum, userId);
+        if (sort == null) {
+            sort = "hotness";
+        } else if (!sort.equals("hotness") && !sort.equals("recency")) {
+            // remaining sort option is upvotes
+            sort = "upvotes";
         }
-        if (sort.equals("recency")) {
-            return searchController.getIdeaPageByRecency(pageNum, userId);
-        }
-        // remaining sort option is upvotes
-        return searchController.getIdeaPageByUpvotes(pageNum, userId);
+        return searchController.getIdeaPageSortedBy(
+            sort,
+            pageNum,
+            tagCount,
+            userId
+        );
     }
 
+    /**
+     * Lists ideas with all of the given tags, or any of them when match
+     * is "any", served from the search index. Pages either by page
+     * number or, when no page number is given, by the cursor returned
+     * with the previous page.
+     */
     @GetMapping("/api/ideas/tags")
     public PreviewIdeaPageDTO getIdeasByTag(
         @RequestHeader(value = "authorization", required = false) String userId,
-        @RequestParam("page") int pageNum,
-        @RequestParam("tag") String tag
-    ) {
-        return mapper.previewIdeaPageDTO(
-            database.getIdeasByTagAndPageNum(tag, pageNum),
-            userId,
-            database
+        @RequestParam(value = "page", required = false) Integer pageNum,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "pageSize", defaultValue = "10") int pageSize,
+        @RequestParam("tag") List<String> tags,
+        @RequestParam(value = "match", defaultValue = "all") String match,
+        @RequestParam(value = "sort", defaultValue = "recency") String sort,
+        @RequestParam(value = "tagCounts", defaultValue = "0") int tagCount
+    ) throws InvalidCursorException {
+        if (!sort.equals("hotness") && !sort.equals("recency")) {
+            // remaining sort option is upvotes
+            sort = "upvotes";
+        }
+        pageSize = Math.max(1, Math.min(pageSize, Database.MAX_ITEMS_PER_PAGE));
+        if (pageNum != null) {
+            return searchController.getIdeaPageByTags(
+                tags,
+                !match.equals("any"),
+                sort,
+                pageNum,
+                pageSize,
+                tagCount,
+                userId
+            );
+        }
+        return searchController.getIdeaPageByTagsAndCursor(
+            tags,
+            !match.equals("any"),
+            sort,
+            cursor,
+            pageSize,
+            tagCount,
+            userId
         );
     }
 
@@ -124,6 +162,30 @@ public class IdeaController {
         }
     }
 
+    /**
+     * Ideas with the most similar title and content, served from the
+     * search index.
+     */
+    @GetMapping("/api/ideas/{ideaId}/related")
+    public List<PreviewIdeaDTO> getRelatedIdeas(
+        @RequestHeader(value = "authorization", required = false) String userId,
+        @PathVariable String ideaId
+    ) {
+        return searchController.getRelatedIdeas(ideaId, userId);
+    }
+
+    /**
+     * Public projects whose name and description are most similar to the
+     * idea's title and content, served from the search index.
+     */
+    @GetMapping("/api/ideas/{ideaId}/relatedprojects")
+    public List<PreviewProjectDTO> getRelatedProjects(
+        @RequestHeader(value = "authorization", required = false) String userId,
+        @PathVariable String ideaId
+    ) {
+        return searchController.getRelatedProjects(ideaId, userId);
+    }
+
     @PostMapping("/api/ideas")
     public String createIdea(
         @RequestHeader("authorization") String userId,
@@ -151,13 +213,34 @@ public class IdeaController {
         return newIdea.getIdeaId();
     }
 
+    /**
+     * Pages either by page number or, when no page number is given,
+     * by the cursor returned with the previous page.
+     */
     @GetMapping("/api/ideas/search")
     public PreviewIdeaPageDTO searchIdeas(
         @RequestHeader(value = "authorization", required = false) String userId,
         @RequestParam("query") String query,
-        @RequestParam("page") int page
-    ) {
-        return searchController.searchForIdeaByPage(query, userId, page);
+        @RequestParam(value = "page", required = false) Integer page,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "pageSize", defaultValue = "10") int pageSize,
+        @RequestParam(value = "tagCounts", defaultValue = "0") int tagCount
+    ) throws InvalidCursorException {
+        if (page != null) {
+            return searchController.searchForIdeaByPage(
+                query,
+                userId,
+                page,
+                tagCount
+            );
+        }
+        return searchController.searchForIdeaByCursor(
+            query,
+            userId,
+            cursor,
+            Math.max(1, Math.min(pageSize, Database.MAX_ITEMS_PER_PAGE)),
+            tagCount
+        );
     }
 
     @PostMapping("/api/ideas/{ideaId}/comments")
@@ -25,23 +25,45 @@ public class MessageController {
     @Autowired
     DTOMapper mapper;
 
+    /**
+     * Pages either by page number or, when no page number is given,
+     * by the cursor returned with the previous page.
+     */
     @GetMapping("/api/messages/received")
     public ViewReceivedMessagePageDTO getReceivedMessages(
         @RequestHeader("authorization") String userId,
-        @RequestParam("page") int pageNum
-    ) {
+        @RequestParam(value = "page", required = false) Integer pageNum,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "pageSize", defaultValue = "10") int pageSize
+    ) throws DatabaseException {
+        if (pageNum != null) {
+            return mapper.viewReceivedMessagePageDTO(
+                database.getReceivedMessagesByPage(userId, pageNum)
+            );
+        }
         return mapper.viewReceivedMessagePageDTO(
-            database.getReceivedMessagesByPage(userId, pageNum)
+            database.getReceivedMessagesByCursor(userId, cursor, pageSize)
         );
     }
 
+    /**
+     * Pages either by page number or, when no page number is given,
+     * by the cursor returned with the previous page.
+     */
     @GetMapping("/api/messages/sent")
     public ViewSentMessagePageDTO getSentMessages(
         @RequestHeader("authorization") String userId,
-        @RequestParam("page") int pageNum
-    ) {
+        @RequestParam(value = "page", required = false) Integer pageNum,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "pageSize", defaultValue = "10") int pageSize
+    ) throws DatabaseException {
+        if (pageNum != null) {
+            return mapper.viewSentMessagePageDTO(
+                database.getSentMessagesByPage(userId, pageNum)
+            );
+        }
         return mapper.viewSentMessagePageDTO(
-            database.getSentMessagesByPage(userId, pageNum)
+            database.getSentMessagesByCursor(userId, cursor, pageSize)
         );
     }
 
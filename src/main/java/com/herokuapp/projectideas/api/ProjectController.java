@@ -8,6 +8,7 @@ import com.herokuapp.projectideas.database.document.project.ProjectJoinRequest;
 import com.herokuapp.projectideas.database.document.user.User;
 import com.herokuapp.projectideas.database.document.user.UsernameIdPair;
 import com.herokuapp.projectideas.database.exception.DatabaseException;
+import com.herokuapp.projectideas.database.exception.InvalidCursorException;
 import com.herokuapp.projectideas.dto.DTOMapper;
 import com.herokuapp.projectideas.dto.project.PreviewProjectPageDTO;
 import com.herokuapp.projectideas.dto.project.RequestToJoinProjectDTO;
@@ -46,28 +47,64 @@ public class ProjectController {
     public PreviewProjectPageDTO getPublicProjects(
         @RequestHeader(value = "authorization", required = false) String userId,
         @RequestParam("page") int pageNum,
-        @RequestParam(value = "sort", required = false) String sort
+        @RequestParam(value = "sort", required = false) String sort,
+        @RequestParam(value = "tagCounts", defaultValue = "0") int tagCount
     ) {
-        if (sort == null || sort.equals("hotness")) {
-            return searchController.getProjectPageByHotness(pageNum, userId);
+        if (sort == null) {
+            sort = "hotness";
+        } else if (!sort.equals("hotness") && !sort.equals("recency")) {
+            // remaining sort option is upvotes
+            sort = "upvotes";
         }
-        if (sort.equals("recency")) {
-            return searchController.getProjectPageByRecency(pageNum, userId);
-        }
-        // remaining sort option is upvotes
-        return searchController.getProjectPageByUpvotes(pageNum, userId);
+        return searchController.getProjectPageSortedBy(
+            sort,
+            pageNum,
+            tagCount,
+            userId
+        );
     }
 
+    /**
+     * Lists public projects with all of the given tags, or any of them
+     * when match is "any", served from the search index. Pages either by
+     * page number or, when no page number is given, by the cursor
+     * returned with the previous page.
+     */
     @GetMapping("/api/projects/tags")
     public PreviewProjectPageDTO getProjectsByTag(
         @RequestHeader(value = "authorization", required = false) String userId,
-        @RequestParam("page") int pageNum,
-        @RequestParam("tag") String tag
-    ) {
-        return mapper.previewProjectPageDTO(
-            database.getPublicProjectsByTagAndPageNum(tag, pageNum),
-            userId,
-            database
+        @RequestParam(value = "page", required = false) Integer pageNum,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "pageSize", defaultValue = "10") int pageSize,
+        @RequestParam("tag") List<String> tags,
+        @RequestParam(value = "match", defaultValue = "all") String match,
+        @RequestParam(value = "sort", defaultValue = "recency") String sort,
+        @RequestParam(value = "tagCounts", defaultValue = "0") int tagCount
+    ) throws InvalidCursorException {
+        if (!sort.equals("hotness") && !sort.equals("recency")) {
+            // remaining sort option is upvotes
+            sort = "upvotes";
+        }
+        pageSize = Math.max(1, Math.min(pageSize, Database.MAX_ITEMS_PER_PAGE));
+        if (pageNum != null) {
+            return searchController.getProjectPageByTags(
+                tags,
+                !match.equals("any"),
+                sort,
+                pageNum,
+                pageSize,
+                tagCount,
+                userId
+            );
+        }
+        return searchController.getProjectPageByTagsAndCursor(
+            tags,
+            !match.equals("any"),
+            sort,
+            cursor,
+            pageSize,
+            tagCount,
+            userId
         );
     }
 
@@ -446,12 +483,33 @@ public class ProjectController {
         database.leaveProjectForUser(userId, projectId);
     }
 
+    /**
+     * Pages either by page number or, when no page number is given,
+     * by the cursor returned with the previous page.
+     */
     @GetMapping("/api/projects/search")
     public PreviewProjectPageDTO searchProjects(
         @RequestHeader(value = "authorization", required = false) String userId,
         @RequestParam("query") String query,
-        @RequestParam("page") int page
-    ) {
-        return searchController.searchForProjectByPage(query, page, userId);
+        @RequestParam(value = "page", required = false) Integer page,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "pageSize", defaultValue = "10") int pageSize,
+        @RequestParam(value = "tagCounts", defaultValue = "0") int tagCount
+    ) throws InvalidCursorException {
+        if (page != null) {
+            return searchController.searchForProjectByPage(
+                query,
+                page,
+                tagCount,
+                userId
+            );
+        }
+        return searchController.searchForProjectByCursor(
+            query,
+            cursor,
+            Math.max(1, Math.min(pageSize, Database.MAX_ITEMS_PER_PAGE)),
+            tagCount,
+            userId
+        );
     }
 }
@@ -0,0 +1,31 @@
+package com.herokuapp.projectideas.api;
+
+import com.herokuapp.projectideas.database.Database;
+import com.herokuapp.projectideas.dto.search.SearchSuggestionsDTO;
+import com.herokuapp.projectideas.search.SearchController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class SuggestionController {
+
+    @Autowired
+    SearchController searchController;
+
+    /**
+     * Suggests the hottest ideas and projects with a word in their title
+     * starting with each word of the prefix, for search as you type.
+     */
+    @GetMapping("/api/search/suggestions")
+    public SearchSuggestionsDTO getSearchSuggestions(
+        @RequestParam("prefix") String prefix,
+        @RequestParam(value = "limit", defaultValue = "5") int limit
+    ) {
+        return searchController.getTitleSuggestions(
+            prefix,
+            Math.max(1, Math.min(limit, Database.MAX_ITEMS_PER_PAGE))
+        );
+    }
+}
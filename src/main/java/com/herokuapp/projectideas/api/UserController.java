@@ -8,6 +8,7 @@ import com.herokuapp.projectideas.dto.post.PreviewIdeaPageDTO;
 import com.herokuapp.projectideas.dto.project.PreviewProjectPageDTO;
 import com.herokuapp.projectideas.dto.user.UpdateUserDTO;
 import com.herokuapp.projectideas.dto.user.ViewUserDTO;
+import com.herokuapp.projectideas.dto.user.ViewUsernameUpdateJobDTO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -34,37 +35,88 @@ public class UserController {
         return mapper.viewUserDTO(user);
     }
 
+    /**
+     * Progress of copying the user's latest username change onto their
+     * ideas and projects, which happens in the background.
+     */
+    @GetMapping("/api/users/{id}/usernameupdate")
+    public ViewUsernameUpdateJobDTO getUsernameUpdate(@PathVariable String id)
+        throws DatabaseException {
+        return mapper.viewUsernameUpdateJobDTO(
+            database.getUsernameUpdateJob(id)
+        );
+    }
+
+    /**
+     * Pages either by page number or, when no page number is given,
+     * by the cursor returned with the previous page.
+     */
     @GetMapping("/api/users/{userId}/postedideas")
     public PreviewIdeaPageDTO getPostedIdeas(
         @PathVariable String userId,
-        @RequestParam("page") int pageNum
-    ) {
+        @RequestParam(value = "page", required = false) Integer pageNum,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "pageSize", defaultValue = "10") int pageSize
+    ) throws DatabaseException {
+        if (pageNum != null) {
+            return mapper.previewIdeaPageDTO(
+                database.getPostedIdeasForUser(userId, pageNum),
+                userId,
+                database
+            );
+        }
         return mapper.previewIdeaPageDTO(
-            database.getPostedIdeasForUser(userId, pageNum),
+            database.getPostedIdeasForUserByCursor(userId, cursor, pageSize),
             userId,
             database
         );
     }
 
+    /**
+     * Pages either by page number or, when no page number is given,
+     * by the cursor returned with the previous page.
+     */
     @GetMapping("/api/users/{userId}/savedIdeas")
     public PreviewIdeaPageDTO getSavedIdeas(
         @PathVariable String userId,
-        @RequestParam("page") int pageNum
-    ) {
+        @RequestParam(value = "page", required = false) Integer pageNum,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "pageSize", defaultValue = "10") int pageSize
+    ) throws DatabaseException {
+        if (pageNum != null) {
+            return mapper.previewIdeaPageDTO(
+                database.getSavedIdeasForUser(userId, pageNum),
+                userId,
+                database
+            );
+        }
         return mapper.previewIdeaPageDTO(
-            database.getSavedIdeasForUser(userId, pageNum),
+            database.getSavedIdeasForUserByCursor(userId, cursor, pageSize),
             userId,
             database
         );
     }
 
+    /**
+     * Pages either by page number or, when no page number is given,
+     * by the cursor returned with the previous page.
+     */
     @GetMapping("/api/users/{userId}/projects")
     public PreviewProjectPageDTO getJoinedProjects(
         @PathVariable String userId,
-        @RequestParam("page") int pageNum
-    ) {
+        @RequestParam(value = "page", required = false) Integer pageNum,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "pageSize", defaultValue = "10") int pageSize
+    ) throws DatabaseException {
+        if (pageNum != null) {
+            return mapper.previewProjectPageDTO(
+                database.getJoinedProjectsForUser(userId, pageNum),
+                userId,
+                database
+            );
+        }
         return mapper.previewProjectPageDTO(
-            database.getJoinedProjectsForUser(userId, pageNum),
+            database.getJoinedProjectsForUserByCursor(userId, cursor, pageSize),
             userId,
             database
         );
@@ -1,6 +1,7 @@
 package com.herokuapp.projectideas.api.exception;
 
 import com.herokuapp.projectideas.database.exception.DatabaseException;
+import com.herokuapp.projectideas.database.exception.InvalidCursorException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -14,4 +15,8 @@ public class ControllerExceptionHandler {
     @ExceptionHandler(DatabaseException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public final void handleDatabaseException(DatabaseException e) {}
+
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public final void handleInvalidCursorException(InvalidCursorException e) {}
 }
@@ -0,0 +1,218 @@
+package com.herokuapp.projectideas.database;
+
+import com.azure.cosmos.ChangeFeedProcessor;
+import com.azure.cosmos.ChangeFeedProcessorBuilder;
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.CosmosAsyncContainer;
+import com.azure.cosmos.CosmosAsyncDatabase;
+import com.azure.cosmos.CosmosClientBuilder;
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.ChangeFeedProcessorOptions;
+import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.PartitionKey;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.herokuapp.projectideas.database.document.RootDocument;
+import com.herokuapp.projectideas.database.document.post.Idea;
+import com.herokuapp.projectideas.database.document.project.Project;
+import com.herokuapp.projectideas.database.document.tag.Tag;
+import com.herokuapp.projectideas.search.IndexController;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds the search indexes from the Cosmos change feeds of the post,
+ * project and tag containers. Every instance keeps its own index, so
+ * every instance reads the whole feed, with its own set of leases in the
+ * lease container. Leases are named after the configured instance name,
+ * which defaults to the Heroku dyno name, and are deleted on shutdown.
+ */
+@Component
+@ConditionalOnProperty(
+    name = "projectideas.changeFeed.mode",
+    havingValue = "cosmos",
+    matchIfMissing = true
+)
+public class CosmosDocumentChangeFeed implements DocumentChangeFeed {
+
+    @Autowired
+    @Lazy
+    IndexController indexController;
+
+    private final CosmosAsyncClient client;
+    private final CosmosAsyncDatabase database;
+    private final String collectionPrefix;
+    private final String instanceName;
+    private CosmosAsyncContainer leaseContainer;
+    private final List<ChangeFeedProcessor> processors = new ArrayList<>();
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+    .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Document types that are indexed, by the value of their type property
+     */
+    private static final Map<String, Class<? extends RootDocument>> INDEXED_TYPES = Map.of(
+        "Idea",
+        Idea.class,
+        "Project",
+        Project.class,
+        "IdeaTag",
+        Tag.class,
+        "ProjectTag",
+        Tag.class
+    );
+
+    private static final Logger logger = LoggerFactory.getLogger(
+        CosmosDocumentChangeFeed.class
+    );
+
+    public CosmosDocumentChangeFeed(
+        @Value("${azure.cosmos.uri}") String uri,
+        @Value("${azure.cosmos.key}") String key,
+        @Value("${projectideas.collectionPrefix}") String collectionPrefix,
+        @Value(
+            "${projectideas.changeFeed.instanceName:${DYNO:}}"
+        ) String instanceName
+    ) {
+        if (instanceName.isBlank()) {
+            throw new IllegalStateException(
+                "projectideas.changeFeed.instanceName must be set when " +
+                "DYNO is not"
+            );
+        }
+        client =
+            new CosmosClientBuilder().endpoint(uri).key(key).buildAsyncClient();
+        database = client.getDatabase("projectideas");
+        this.collectionPrefix = collectionPrefix;
+        this.instanceName = instanceName;
+    }
+
+    @Override
+    public void publish(RootDocument document) {
+        // Changes are read from the database
+    }
+
+    /**
+     * Starts reading the feeds once the indexes have caught up at startup.
+     * New leases start from when the catch up began, so changes made
+     * while the indexes were catching up are not missed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        String leaseContainerName = collectionPrefix + "_leases";
+        database.createContainerIfNotExists(leaseContainerName, "/id").block();
+        leaseContainer = database.getContainer(leaseContainerName);
+
+        for (String containerName : List.of("posts", "projects", "tags")) {
+            ChangeFeedProcessorOptions options = new ChangeFeedProcessorOptions();
+            // Leases are per instance, so each instance sees every change
+            options.setLeasePrefix(getLeasePrefix() + containerName + ".");
+            options.setStartTime(indexController.getChangeFeedStartTime());
+
+            ChangeFeedProcessor processor = new ChangeFeedProcessorBuilder()
+                .hostName(instanceName)
+                .feedContainer(
+                    database.getContainer(
+                        collectionPrefix + "_" + containerName
+                    )
+                )
+                .leaseContainer(leaseContainer)
+                .options(options)
+                .handleChanges(this::handleChanges)
+                .buildChangeFeedProcessor();
+            processor.start().block();
+            processors.add(processor);
+            logger.info(
+                "Started change feed processor for " +
+                containerName +
+                " as " +
+                instanceName
+            );
+        }
+    }
+
+    /**
+     * Stops reading the feeds and deletes this instance's leases, since
+     * the next start catches up from the index watermark instead
+     */
+    @PreDestroy
+    private void stop() {
+        for (ChangeFeedProcessor processor : processors) {
+            processor.stop().block();
+        }
+        if (leaseContainer != null) {
+            try {
+                deleteLeases();
+            } catch (CosmosException e) {
+                logger.warn("Failed to delete leases of " + instanceName, e);
+            }
+        }
+        client.close();
+    }
+
+    private void deleteLeases() {
+        leaseContainer
+            .queryItems(
+                "SELECT c.id FROM c WHERE STARTSWITH(c.id, '" +
+                getLeasePrefix() +
+                "')",
+                new CosmosQueryRequestOptions(),
+                JsonNode.class
+            )
+            .flatMap(
+                lease -> {
+                    String id = lease.get("id").asText();
+                    return leaseContainer.deleteItem(id, new PartitionKey(id));
+                }
+            )
+            .blockLast();
+    }
+
+    private String getLeasePrefix() {
+        return instanceName + ".";
+    }
+
+    private void handleChanges(List<JsonNode> changes) {
+        List<RootDocument> documents = new ArrayList<>();
+        for (JsonNode change : changes) {
+            Class<? extends RootDocument> documentType = INDEXED_TYPES.get(
+                change.path("type").asText()
+            );
+            if (documentType == null) {
+                continue;
+            }
+            try {
+                documents.add(objectMapper.treeToValue(change, documentType));
+            } catch (IOException e) {
+                logger.error("Failed to read change feed document", e);
+            }
+        }
+        if (documents.isEmpty()) {
+            return;
+        }
+        try {
+            indexController.applyChanges(documents);
+        } catch (IOException e) {
+            // Failing the batch leaves the lease where it was, so the
+            // changes are delivered again
+            throw new IllegalStateException(
+                "Failed to index change feed batch",
+                e
+            );
+        }
+    }
+}
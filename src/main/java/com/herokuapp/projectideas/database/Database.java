@@ -7,10 +7,23 @@ import com.azure.cosmos.CosmosDatabase;
 import com.azure.cosmos.CosmosException;
 import com.azure.cosmos.implementation.ConflictException;
 import com.azure.cosmos.implementation.NotFoundException;
+import com.azure.cosmos.models.CosmosBatch;
+import com.azure.cosmos.models.CosmosBatchOperationResult;
+import com.azure.cosmos.models.CosmosBatchResponse;
+import com.azure.cosmos.models.CosmosBulkOperationResponse;
+import com.azure.cosmos.models.CosmosBulkOperations;
+import com.azure.cosmos.models.CosmosItemIdentity;
+import com.azure.cosmos.models.CosmosItemOperation;
 import com.azure.cosmos.models.CosmosItemRequestOptions;
+import com.azure.cosmos.models.CosmosItemResponse;
+import com.azure.cosmos.models.CosmosPatchItemRequestOptions;
+import com.azure.cosmos.models.CosmosPatchOperations;
 import com.azure.cosmos.models.CosmosQueryRequestOptions;
 import com.azure.cosmos.models.CosmosStoredProcedureRequestOptions;
+import com.azure.cosmos.models.FeedResponse;
 import com.azure.cosmos.models.PartitionKey;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.mohitgoyal91.cosmosdbqueryutils.RestrictionBuilder;
 import com.github.mohitgoyal91.cosmosdbqueryutils.SelectQuery;
 import com.github.mohitgoyal91.cosmosdbqueryutils.utilities.Constants.Order;
@@ -34,22 +47,34 @@ import com.herokuapp.projectideas.database.document.user.UserJoinedProject;
 import com.herokuapp.projectideas.database.document.user.UserPostedIdea;
 import com.herokuapp.projectideas.database.document.user.UserSavedIdea;
 import com.herokuapp.projectideas.database.document.user.UsernameIdPair;
+import com.herokuapp.projectideas.database.document.user.UsernameUpdateJob;
 import com.herokuapp.projectideas.database.document.vote.IdeaUpvote;
 import com.herokuapp.projectideas.database.document.vote.ProjectUpvote;
 import com.herokuapp.projectideas.database.document.vote.Upvote;
 import com.herokuapp.projectideas.database.document.vote.Votable;
 import com.herokuapp.projectideas.database.exception.EmptyPointReadException;
 import com.herokuapp.projectideas.database.exception.EmptySingleDocumentQueryException;
+import com.herokuapp.projectideas.database.exception.InvalidCursorException;
 import com.herokuapp.projectideas.database.query.GenericQueries;
 import com.herokuapp.projectideas.email.EmailInterface;
 import com.herokuapp.projectideas.notification.NotificationService;
 import com.herokuapp.projectideas.search.IndexController;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,17 +93,48 @@ public class Database {
     private CosmosContainer tagContainer;
     private CosmosContainer projectContainer;
 
+    /**
+     * Read-through cache of user documents keyed by user id. Entries
+     * are handed out as copies, since callers modify the returned user
+     * before passing it back to updateUser.
+     */
+    private Cache<String, User> userCache;
+
     @Autowired
     IndexController indexController;
 
     @Autowired
     EmailInterface emailInterface;
 
+    @Autowired
+    DocumentChangeFeed changeFeed;
+
+    @Autowired
+    VoteAggregator voteAggregator;
+
+    @Autowired
+    UsernameUpdateJobRunner usernameUpdateJobRunner;
+
     @Autowired
     @Lazy
     NotificationService notificationService;
 
     public static final int ITEMS_PER_PAGE = 10;
+    public static final int MAX_ITEMS_PER_PAGE = 50;
+    /**
+     * Maximum number of operations in a Cosmos transactional batch
+     */
+    private static final int MAX_BATCH_OPERATIONS = 100;
+
+    private static final int BAD_REQUEST = 400;
+    private static final int NOT_FOUND = 404;
+    private static final int CONFLICT = 409;
+    private static final int PRECONDITION_FAILED = 412;
+
+    /**
+     * Maximum number of conditional writes of a votable document
+     */
+    private static final int MAX_REPLACE_ATTEMPTS = 10;
 
     private static final Logger logger = LoggerFactory.getLogger(
         Database.class
@@ -87,7 +143,14 @@ public class Database {
     public Database(
         @Value("${azure.cosmos.uri}") String uri,
         @Value("${azure.cosmos.key}") String key,
-        @Value("${projectideas.collectionPrefix}") String collectionPrefix
+        @Value("${projectideas.collectionPrefix}") String collectionPrefix,
+        @Value(
+            "${projectideas.userCache.maximumSize:10000}"
+        ) long userCacheMaximumSize,
+        @Value(
+            "${projectideas.userCache.expireAfterWriteSeconds:60}"
+        ) long userCacheExpireAfterWriteSeconds,
+        MeterRegistry meterRegistry
     ) {
         client = new CosmosClientBuilder().endpoint(uri).key(key).buildClient();
         database = client.getDatabase("projectideas");
@@ -96,6 +159,17 @@ public class Database {
         tagContainer = database.getContainer(collectionPrefix + "_tags");
         projectContainer =
             database.getContainer(collectionPrefix + "_projects");
+
+        userCache =
+            Caffeine
+                .newBuilder()
+                .maximumSize(userCacheMaximumSize)
+                .expireAfterWrite(
+                    Duration.ofSeconds(userCacheExpireAfterWriteSeconds)
+                )
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userCache, "users");
     }
 
     private <T> boolean documentExists(
@@ -229,6 +303,151 @@ public class Database {
         return new DocumentPage<>(documents, lastPage);
     }
 
+    /**
+     * Returns a page of documents starting at the given cursor.
+     * Uses Cosmos continuation tokens rather than OFFSET/LIMIT, so the cost
+     * of a page does not depend on how deep into the results it is.
+     * @param <T> Type of document desired
+     * @param query Query to page through
+     * @param container Container for query to be executed on
+     * @param cursor Cursor returned with the previous page,
+     * or null for the first page
+     * @param pageSize Number of documents desired,
+     * clamped to [1, MAX_ITEMS_PER_PAGE]
+     * @param classType Type of document to request
+     * @return Document page holding the cursor of the following page
+     * @throws InvalidCursorException If the cursor is malformed
+     */
+    private <T> DocumentPage<T> cursorPageQuery(
+        SelectQuery query,
+        CosmosContainer container,
+        String cursor,
+        int pageSize,
+        Class<T> classType
+    ) throws InvalidCursorException {
+        int clampedPageSize = Math.max(
+            1,
+            Math.min(pageSize, MAX_ITEMS_PER_PAGE)
+        );
+        String continuationToken = decodeCursor(cursor);
+        logger.debug(
+            "cursorPageQuery: query = " +
+            query.createQuery() +
+            ", container = " +
+            container.getId()
+        );
+
+        // Cosmos may return fewer documents than requested per response,
+        // so keep requesting the remainder until the page is full.
+        List<T> documents = new ArrayList<>();
+        try {
+            do {
+                FeedResponse<T> response = queryPage(
+                    query,
+                    container,
+                    continuationToken,
+                    clampedPageSize - documents.size(),
+                    classType
+                );
+                documents.addAll(response.getResults());
+                continuationToken = response.getContinuationToken();
+            } while (
+                continuationToken != null && documents.size() < clampedPageSize
+            );
+
+            // Cosmos returns a continuation token whenever the page is
+            // full, even if no documents follow it
+            if (
+                continuationToken != null &&
+                !hasMoreResults(query, container, continuationToken, classType)
+            ) {
+                continuationToken = null;
+            }
+        } catch (CosmosException e) {
+            if (e.getStatusCode() == BAD_REQUEST) {
+                throw new InvalidCursorException(cursor);
+            }
+            throw e;
+        }
+
+        return new DocumentPage<>(
+            documents,
+            continuationToken == null,
+            encodeCursor(continuationToken)
+        );
+    }
+
+    private <T> FeedResponse<T> queryPage(
+        SelectQuery query,
+        CosmosContainer container,
+        String continuationToken,
+        int pageSize,
+        Class<T> classType
+    ) {
+        return container
+            .queryItems(
+                query.createQuery(),
+                new CosmosQueryRequestOptions(),
+                classType
+            )
+            .iterableByPage(continuationToken, pageSize)
+            .iterator()
+            .next();
+    }
+
+    /**
+     * @return Whether any document follows the continuation token. The
+     * token itself is left as it was, so it still continues from the
+     * same document.
+     */
+    private <T> boolean hasMoreResults(
+        SelectQuery query,
+        CosmosContainer container,
+        String continuationToken,
+        Class<T> classType
+    ) {
+        // Responses may be empty while documents remain in other
+        // partitions, so follow the tokens until a document is found
+        do {
+            FeedResponse<T> response = queryPage(
+                query,
+                container,
+                continuationToken,
+                1,
+                classType
+            );
+            if (!response.getResults().isEmpty()) {
+                return true;
+            }
+            continuationToken = response.getContinuationToken();
+        } while (continuationToken != null);
+        return false;
+    }
+
+    private String encodeCursor(String continuationToken) {
+        if (continuationToken == null) {
+            return null;
+        }
+        return Base64
+            .getUrlEncoder()
+            .withoutPadding()
+            .encodeToString(continuationToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String decodeCursor(String cursor) throws InvalidCursorException {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return new String(
+                Base64.getUrlDecoder().decode(cursor),
+                StandardCharsets.UTF_8
+            );
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
     private int countQuery(SelectQuery query, CosmosContainer container) {
         logger.debug(
             "countQuery: query = " +
@@ -253,69 +472,105 @@ public class Database {
      * @param <T> Type of document desired
      * @param partitionKeys Page of partition keys
      * @param container Container for query to be executed on
-     * @param pageNum Page number
      * @param classType Type of document to request
-     * @return Document page of ITEMS_PER_PAGE documents
+     * @return Document page with the same length, last page flag, and cursor
+     * as the partition key page
      */
     private <T extends RootDocument> DocumentPage<T> getDocumentPageFromPartitionKeyPage(
         DocumentPage<String> partitionKeys,
         CosmosContainer container,
-        int pageNum,
         Class<T> classType
     ) {
-        List<T> documents = multipleDocumentQuery(
-            GenericQueries.queryByPartitionKeyList(
-                partitionKeys.getDocuments(),
-                classType
-            ),
+        List<T> orderedDocuments = readDocumentsWithPartitionKeyIds(
+            partitionKeys.getDocuments(),
             container,
             classType
         );
 
-        // SQL IN queries are not guaranteed in any order, so order the documents retrieved
-        // based on the order of the partition keys
-        ArrayList<T> orderedDocuments = new ArrayList<>();
-        for (String partitionKey : partitionKeys.getDocuments()) {
-            Optional<T> document = documents
-                .stream()
-                .filter(doc -> doc.getPartitionKey().equals(partitionKey))
-                .findAny();
-            if (document.isPresent()) {
-                orderedDocuments.add(document.get());
+        return new DocumentPage<>(
+            orderedDocuments,
+            partitionKeys.isLastPage(),
+            partitionKeys.getCursor()
+        );
+    }
+
+    /**
+     * Point reads the documents whose id equals their partition key
+     * (ideas and projects) in a single readMany request.
+     * Will return documents in the order of the given ids, skipping
+     * any that do not exist.
+     * @param <T> Type of document desired
+     * @param ids Ids of the documents, which are also their partition keys
+     * @param container Container the documents are stored in
+     * @param classType Type of document to request
+     * @return Documents that exist, in the order of the ids
+     */
+    private <T extends RootDocument> List<T> readDocumentsWithPartitionKeyIds(
+        List<String> ids,
+        CosmosContainer container,
+        Class<T> classType
+    ) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<CosmosItemIdentity> itemIdentities = new LinkedHashSet<>(ids)
+            .stream()
+            .map(id -> new CosmosItemIdentity(new PartitionKey(id), id))
+            .collect(Collectors.toList());
+        logger.debug(
+            "readDocumentsWithPartitionKeyIds: ids = " +
+            ids +
+            ", container = " +
+            container.getId()
+        );
+        FeedResponse<T> response = container.readMany(
+            itemIdentities,
+            classType
+        );
+
+        // readMany does not preserve order, so look documents up by id
+        Map<String, T> documentsById = new HashMap<>();
+        for (T document : response.getResults()) {
+            documentsById.put(document.getPartitionKey(), document);
+        }
+
+        List<T> orderedDocuments = new ArrayList<>(ids.size());
+        List<String> missingIds = new ArrayList<>();
+        for (String id : ids) {
+            T document = documentsById.get(id);
+            if (document != null) {
+                orderedDocuments.add(document);
             } else {
-                logger.warn(
-                    "getDocumentPageFromPartitionKeyPage encountered a document " +
-                    "reference to a document that does not exist: \n" +
-                    classType.getSimpleName() +
-                    " with partition key " +
-                    partitionKey
-                );
+                missingIds.add(id);
             }
         }
-
-        return new DocumentPage<>(orderedDocuments, partitionKeys.isLastPage());
+        if (!missingIds.isEmpty()) {
+            logger.warn(
+                "readDocumentsWithPartitionKeyIds encountered references to " +
+                "documents that do not exist: \n" +
+                classType.getSimpleName() +
+                " with partition keys " +
+                missingIds
+            );
+        }
+        return orderedDocuments;
     }
 
-    public DocumentPage<Idea> getIdeaPageFromIds(
-        DocumentPage<String> ids,
-        int pageNum
-    ) {
+    public DocumentPage<Idea> getIdeaPageFromIds(DocumentPage<String> ids) {
         return getDocumentPageFromPartitionKeyPage(
             ids,
             postContainer,
-            pageNum,
             Idea.class
         );
     }
 
     public DocumentPage<Project> getProjectPageFromIds(
-        DocumentPage<String> ids,
-        int pageNum
+        DocumentPage<String> ids
     ) {
         return getDocumentPageFromPartitionKeyPage(
             ids,
             projectContainer,
-            pageNum,
             Project.class
         );
     }
@@ -330,34 +585,34 @@ public class Database {
             return;
         }
 
-        // Only upvote if the user has not already upvoted the document
-        try {
-            container.createItem(upvote);
-        } catch (ConflictException e) {
+        if (voteAggregator.isEnabled()) {
+            // Only count the upvote if the user has not already upvoted
+            try {
+                container.createItem(upvote);
+            } catch (ConflictException e) {
+                return;
+            }
+            voteAggregator.record(documentType, upvote.getPartitionKey(), 1);
             return;
         }
 
-        S document = container
-            .readItem(
-                upvote.getPartitionKey(),
-                new PartitionKey(upvote.getPartitionKey()),
-                documentType
-            )
-            .getItem();
-
-        document.addUpvote();
-
-        if (document instanceof Idea) {
-            indexController.tryUpdateIdea((Idea) document);
-        } else if (document instanceof Project) {
-            indexController.tryUpdateProject((Project) document);
-        }
+        // The upvote and the upvoted document share a partition, so the
+        // upvote creation and the count increment can commit atomically.
+        // The batch fails with a conflict if the user has already upvoted.
+        CosmosBatch batch = CosmosBatch.createCosmosBatch(
+            new PartitionKey(upvote.getPartitionKey())
+        );
+        batch.createItemOperation(upvote);
+        batch.patchItemOperation(
+            upvote.getPartitionKey(),
+            CosmosPatchOperations.create().increment("/upvoteCount", 1)
+        );
 
-        container.replaceItem(
-            document,
+        executeUpvoteBatch(
+            batch,
             upvote.getPartitionKey(),
-            new PartitionKey(upvote.getPartitionKey()),
-            new CosmosItemRequestOptions()
+            container,
+            documentType
         );
     }
 
@@ -368,34 +623,260 @@ public class Database {
         Class<T> upvoteType,
         Class<S> documentType
     ) {
-        T upvote = container
-            .readItem(userId, new PartitionKey(partitionKey), upvoteType)
-            .getItem();
+        if (voteAggregator.isEnabled()) {
+            try {
+                container.deleteItem(
+                    userId,
+                    new PartitionKey(partitionKey),
+                    new CosmosItemRequestOptions()
+                );
+            } catch (NotFoundException e) {
+                return;
+            }
+            voteAggregator.record(documentType, partitionKey, -1);
+            return;
+        }
 
-        container.deleteItem(upvote, new CosmosItemRequestOptions());
+        // The batch fails with not found if the user has not upvoted
+        CosmosBatch batch = CosmosBatch.createCosmosBatch(
+            new PartitionKey(partitionKey)
+        );
+        batch.deleteItemOperation(userId);
+        batch.patchItemOperation(
+            partitionKey,
+            CosmosPatchOperations.create().increment("/upvoteCount", -1)
+        );
 
+        executeUpvoteBatch(batch, partitionKey, container, documentType);
+    }
+
+    /**
+     * Executes a batch whose last operation patches the upvote count of
+     * the votable document, then publishes the patched document to the
+     * change feed, reading it if the batch result has no body. A batch
+     * failing with a conflict or not found leaves the vote as it was; any
+     * other failure is thrown.
+     */
+    private <S extends Votable> void executeUpvoteBatch(
+        CosmosBatch batch,
+        String partitionKey,
+        CosmosContainer container,
+        Class<S> documentType
+    ) {
+        logger.debug(
+            "executeUpvoteBatch: partition key = " +
+            partitionKey +
+            ", container = " +
+            container.getId()
+        );
+        CosmosBatchResponse response = container.executeCosmosBatch(batch);
+        if (!response.isSuccessStatusCode()) {
+            // The user has already upvoted, or has no upvote to remove
+            if (
+                response.getStatusCode() == CONFLICT ||
+                response.getStatusCode() == NOT_FOUND
+            ) {
+                return;
+            }
+            throw new IllegalStateException(
+                "Upvote batch for partition key " +
+                partitionKey +
+                " failed with status " +
+                response.getStatusCode() +
+                ": " +
+                response.getErrorMessage()
+            );
+        }
+
+        List<CosmosBatchOperationResult> results = response.getResults();
+        S document = readIfNoBody(
+            results.get(results.size() - 1).getItem(documentType),
+            partitionKey,
+            partitionKey,
+            container,
+            documentType
+        );
+        changeFeed.publish((RootDocument) document);
+    }
+
+    /**
+     * Applies an aggregated change to a document's upvote count.
+     * Called by the vote aggregator when it flushes.
+     */
+    <S extends Votable> void applyUpvoteDelta(
+        Class<S> documentType,
+        String partitionKey,
+        int delta
+    ) throws CosmosException {
+        CosmosContainer container = Idea.class.isAssignableFrom(documentType)
+            ? postContainer
+            : projectContainer;
+        logger.debug(
+            "applyUpvoteDelta: partition key = " +
+            partitionKey +
+            ", delta = " +
+            delta +
+            ", container = " +
+            container.getId()
+        );
         S document = container
-            .readItem(
-                upvote.getPartitionKey(),
-                new PartitionKey(upvote.getPartitionKey()),
+            .patchItem(
+                partitionKey,
+                new PartitionKey(partitionKey),
+                CosmosPatchOperations.create().increment("/upvoteCount", delta),
                 documentType
             )
             .getItem();
+        changeFeed.publish(
+            (RootDocument) readIfNoBody(
+                document,
+                partitionKey,
+                partitionKey,
+                container,
+                documentType
+            )
+        );
+    }
 
-        document.removeUpvote();
+    /**
+     * Sets a document's upvote count to the number of upvotes on it.
+     * Called by the vote aggregator when it is unknown whether a change
+     * to the count was applied. The count is only set if the document
+     * has not changed since it was read, so that increments applied in
+     * the meantime are not overwritten.
+     */
+    <S extends Votable> void recountUpvotes(
+        Class<S> documentType,
+        String partitionKey
+    ) throws CosmosException {
+        CosmosContainer container;
+        Class<? extends Upvote<?>> upvoteType;
+        if (Idea.class.isAssignableFrom(documentType)) {
+            container = postContainer;
+            upvoteType = IdeaUpvote.class;
+        } else {
+            container = projectContainer;
+            upvoteType = ProjectUpvote.class;
+        }
+        for (int attempt = 1; ; attempt++) {
+            logger.debug(
+                "recountUpvotes: partition key = " +
+                partitionKey +
+                ", attempt = " +
+                attempt +
+                ", container = " +
+                container.getId()
+            );
+            String etag = container
+                .readItem(
+                    partitionKey,
+                    new PartitionKey(partitionKey),
+                    documentType
+                )
+                .getETag();
+            int upvoteCount = countQuery(
+                GenericQueries.queryByPartitionKey(partitionKey, upvoteType),
+                container
+            );
+            try {
+                S document = container
+                    .patchItem(
+                        partitionKey,
+                        new PartitionKey(partitionKey),
+                        CosmosPatchOperations
+                            .create()
+                            .set("/upvoteCount", upvoteCount),
+                        new CosmosPatchItemRequestOptions()
+                            .setIfMatchETag(etag),
+                        documentType
+                    )
+                    .getItem();
+                changeFeed.publish(
+                    (RootDocument) readIfNoBody(
+                        document,
+                        partitionKey,
+                        partitionKey,
+                        container,
+                        documentType
+                    )
+                );
+                return;
+            } catch (CosmosException e) {
+                // The count was changed since the read
+                if (
+                    e.getStatusCode() != PRECONDITION_FAILED ||
+                    attempt == MAX_REPLACE_ATTEMPTS
+                ) {
+                    throw e;
+                }
+            }
+        }
+    }
 
-        if (document instanceof Idea) {
-            indexController.tryUpdateIdea((Idea) document);
-        } else if (document instanceof Project) {
-            indexController.tryUpdateProject((Project) document);
+    /**
+     * @return The document returned by a write, or the document read
+     * again if the write's response has no body
+     */
+    private <T> T readIfNoBody(
+        T written,
+        String id,
+        String partitionKey,
+        CosmosContainer container,
+        Class<T> documentType
+    ) {
+        if (written != null) {
+            return written;
         }
+        return container
+            .readItem(id, new PartitionKey(partitionKey), documentType)
+            .getItem();
+    }
 
-        container.replaceItem(
-            document,
-            upvote.getPartitionKey(),
-            new PartitionKey(upvote.getPartitionKey()),
-            new CosmosItemRequestOptions()
-        );
+    /**
+     * Replaces a votable document without overwriting upvotes counted
+     * since it was read. Upvote counts are only changed by patches, so the
+     * current count is carried into the replacement, which is conditional
+     * on the document not having changed since the count was read.
+     */
+    private <S extends RootDocument & Votable> void replaceVotableDocument(
+        S document,
+        CosmosContainer container,
+        Class<S> documentType
+    ) {
+        for (int attempt = 1; ; attempt++) {
+            logger.debug(
+                "replaceVotableDocument: id = " +
+                document.getId() +
+                ", attempt = " +
+                attempt +
+                ", container = " +
+                container.getId()
+            );
+            CosmosItemResponse<S> current = container.readItem(
+                document.getId(),
+                new PartitionKey(document.getPartitionKey()),
+                documentType
+            );
+            document.setUpvoteCount(current.getItem().getUpvoteCount());
+            try {
+                container.replaceItem(
+                    document,
+                    document.getId(),
+                    new PartitionKey(document.getPartitionKey()),
+                    new CosmosItemRequestOptions()
+                        .setIfMatchETag(current.getETag())
+                );
+                return;
+            } catch (CosmosException e) {
+                // A vote was counted since the read
+                if (
+                    e.getStatusCode() != PRECONDITION_FAILED ||
+                    attempt == MAX_REPLACE_ATTEMPTS
+                ) {
+                    throw e;
+                }
+            }
+        }
     }
 
     private <T extends Upvote<S>, S extends Votable> boolean userHasUpvotedDocument(
@@ -408,6 +889,65 @@ public class Database {
         return documentExists(userId, partitionKey, container, upvoteType);
     }
 
+    /**
+     * Returns the subset of the given partition keys for which the user has
+     * an upvote document. Uses a single query per call, rather than a point
+     * read per document.
+     * @param <T> Type of upvote to check for
+     * @param partitionKeys Partition keys of the upvoted documents
+     * @param userId Id of the user
+     * @param container Container holding the upvotes
+     * @param upvoteType Type of upvote to check for
+     * @return Set of partition keys upvoted by the user
+     */
+    private <T extends Upvote<?>> Set<String> getPartitionKeysUpvotedByUser(
+        List<String> partitionKeys,
+        String userId,
+        CosmosContainer container,
+        Class<T> upvoteType
+    ) {
+        if (invalidUserId(userId) || partitionKeys.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(
+            multipleDocumentQuery(
+                GenericQueries
+                    .queryByPartitionKeyList(partitionKeys, upvoteType)
+                    .valueOf(GenericQueries.getPartitionKey(upvoteType))
+                    .addRestrictions(new RestrictionBuilder().eq("id", userId)),
+                container,
+                String.class
+            )
+        );
+    }
+
+    /**
+     * Queries the documents of a type last written at or after the given
+     * time, using the system _ts property, which the query utilities do
+     * not expose.
+     */
+    private <T extends RootDocument> List<T> modifiedSinceQuery(
+        long timestamp,
+        CosmosContainer container,
+        Class<T> classType
+    ) {
+        String query =
+            "SELECT * FROM c WHERE c.type IN ('" +
+            String.join("', '", GenericQueries.getTypes(classType)) +
+            "') AND c._ts >= " +
+            timestamp;
+        logger.debug(
+            "modifiedSinceQuery: query = " +
+            query +
+            ", container = " +
+            container.getId()
+        );
+        return container
+            .queryItems(query, new CosmosQueryRequestOptions(), classType)
+            .stream()
+            .collect(Collectors.toList());
+    }
+
     private boolean invalidUserId(String userId) {
         return userId == null || userId.equals("null");
     }
@@ -422,11 +962,25 @@ public class Database {
     }
 
     public boolean userExists(String userId) {
-        return documentExists(userId, userId, userContainer, User.class);
+        try {
+            getUser(userId);
+            return true;
+        } catch (EmptyPointReadException e) {
+            return false;
+        }
     }
 
     public User getUser(String userId) throws EmptyPointReadException {
-        return readDocument(userId, userId, userContainer, User.class);
+        User user = userCache.getIfPresent(userId);
+        if (user == null) {
+            user = readDocument(userId, userId, userContainer, User.class);
+            userCache.put(userId, user);
+        }
+        return new User(user);
+    }
+
+    private void cacheUser(User user) {
+        userCache.put(user.getUserId(), new User(user));
     }
 
     public User getUserByEmail(String email)
@@ -454,86 +1008,177 @@ public class Database {
         );
     }
 
-    public User getUserByUsername(String username)
-        throws EmptySingleDocumentQueryException {
-        return singleDocumentQuery(
-            GenericQueries
-                .queryByType(User.class)
-                .addRestrictions(
-                    new RestrictionBuilder().eq("username", username)
-                ),
+    public User getUserByUsername(String username)
+        throws EmptySingleDocumentQueryException {
+        return singleDocumentQuery(
+            GenericQueries
+                .queryByType(User.class)
+                .addRestrictions(
+                    new RestrictionBuilder().eq("username", username)
+                ),
+            userContainer,
+            User.class
+        );
+    }
+
+    public void updateUser(String id, User user)
+        throws EmptyPointReadException {
+        User oldUser = getUser(id);
+
+        userContainer.replaceItem(
+            user,
+            id,
+            new PartitionKey(id),
+            new CosmosItemRequestOptions()
+        );
+        cacheUser(user);
+
+        // Username denormalization runs in the background
+        if (!user.getUsername().equals(oldUser.getUsername())) {
+            usernameUpdateJobRunner.start(id, user.getUsername());
+        }
+    }
+
+    List<String> getIdeaIdsWithAuthor(String userId) {
+        return multipleDocumentQuery(
+            GenericQueries
+                .queryByType(Idea.class)
+                .valueOf("ideaId")
+                .addRestrictions(
+                    new RestrictionBuilder().eq("authorId", userId)
+                ),
+            postContainer,
+            String.class
+        )
+            .stream()
+            .distinct()
+            .collect(Collectors.toList());
+    }
+
+    List<String> getProjectIdsWithMemberOrRequester(String userId) {
+        return projectContainer
+            .queryItems(
+                "SELECT VALUE p.projectId FROM p " +
+                "WHERE p.type = 'Project' AND " +
+                "(ARRAY_CONTAINS(p.teamMembers, { \"userId\": '" +
+                userId +
+                "'}, true) OR " +
+                "ARRAY_CONTAINS(p.usersRequestingToJoin, { \"userId\": '" +
+                userId +
+                "'}, true))",
+                new CosmosQueryRequestOptions(),
+                String.class
+            )
+            .stream()
+            .distinct()
+            .collect(Collectors.toList());
+    }
+
+    void updateUsernameInIdeaPartition(
+        String ideaId,
+        String userId,
+        String username
+    ) throws CosmosException {
+        executeUpdateUsername(postContainer, ideaId, userId, username);
+    }
+
+    void updateUsernameInProjectPartition(
+        String projectId,
+        String userId,
+        String username
+    ) throws CosmosException {
+        executeUpdateUsername(projectContainer, projectId, userId, username);
+    }
+
+    private void executeUpdateUsername(
+        CosmosContainer container,
+        String partitionKey,
+        String userId,
+        String username
+    ) throws CosmosException {
+        ArrayList<Object> params = new ArrayList<Object>();
+        params.add(userId);
+        params.add(username);
+
+        CosmosStoredProcedureRequestOptions options = new CosmosStoredProcedureRequestOptions();
+        options.setPartitionKey(new PartitionKey(partitionKey));
+
+        logger.debug(
+            "executeUpdateUsername: partition key = " +
+            partitionKey +
+            ", container = " +
+            container.getId()
+        );
+        container
+            .getScripts()
+            .getStoredProcedure("updateUsername")
+            .execute(params, options);
+    }
+
+    void saveUsernameUpdateJob(UsernameUpdateJob job) throws CosmosException {
+        job.setEtag(userContainer.upsertItem(job).getETag());
+    }
+
+    /**
+     * Replaces a username update job's document, unless it has been
+     * written since the job was read or last saved.
+     * @return Whether the document was replaced
+     */
+    boolean replaceUsernameUpdateJob(UsernameUpdateJob job)
+        throws CosmosException {
+        try {
+            job.setEtag(
+                userContainer
+                    .replaceItem(
+                        job,
+                        job.getId(),
+                        new PartitionKey(job.getUserId()),
+                        new CosmosItemRequestOptions()
+                            .setIfMatchETag(job.getEtag())
+                    )
+                    .getETag()
+            );
+            return true;
+        } catch (CosmosException e) {
+            if (e.getStatusCode() == PRECONDITION_FAILED) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a user's username update job along with its ETag
+     */
+    UsernameUpdateJob readUsernameUpdateJob(String userId)
+        throws CosmosException {
+        CosmosItemResponse<UsernameUpdateJob> response = userContainer.readItem(
+            UsernameUpdateJob.ID,
+            new PartitionKey(userId),
+            UsernameUpdateJob.class
+        );
+        UsernameUpdateJob job = response.getItem();
+        job.setEtag(response.getETag());
+        return job;
+    }
+
+    public UsernameUpdateJob getUsernameUpdateJob(String userId)
+        throws EmptyPointReadException {
+        return readDocument(
+            UsernameUpdateJob.ID,
+            userId,
             userContainer,
-            User.class
+            UsernameUpdateJob.class
         );
     }
 
-    public void updateUser(String id, User user)
-        throws EmptyPointReadException {
-        User oldUser = getUser(id);
-
-        // Handle username denormalization
-        if (!user.getUsername().equals(oldUser.getUsername())) {
-            ArrayList<Object> params = new ArrayList<Object>();
-            params.add(user.getId());
-            params.add(user.getUsername());
-
-            CosmosStoredProcedureRequestOptions options = new CosmosStoredProcedureRequestOptions();
-
-            // Handle posts container
-            List<PartitionKey> ideaPartitionKeys = multipleDocumentQuery(
-                GenericQueries
-                    .queryByType(Idea.class)
-                    .valueOf("ideaId")
-                    .addRestrictions(
-                        new RestrictionBuilder().eq("authorId", user.getId())
-                    ),
-                postContainer,
-                String.class
-            )
-                .stream()
-                .distinct()
-                .map(ideaId -> new PartitionKey(ideaId))
-                .collect(Collectors.toList());
-            for (PartitionKey partitionKey : ideaPartitionKeys) {
-                options.setPartitionKey(partitionKey);
-                postContainer
-                    .getScripts()
-                    .getStoredProcedure("updateUsername")
-                    .execute(params, options);
-            }
-
-            // Handle projects container
-            List<PartitionKey> projectPartitionKeys = projectContainer
-                .queryItems(
-                    "SELECT VALUE p.projectId FROM p " +
-                    "WHERE p.type = 'Project' AND " +
-                    "(ARRAY_CONTAINS(p.teamMembers, { \"userId\": '" +
-                    id +
-                    "'}, true) OR " +
-                    "ARRAY_CONTAINS(p.usersRequestingToJoin, { \"userId\": '" +
-                    id +
-                    "'}, true))",
-                    new CosmosQueryRequestOptions(),
-                    String.class
-                )
-                .stream()
-                .distinct()
-                .map(projectId -> new PartitionKey(projectId))
-                .collect(Collectors.toList());
-            for (PartitionKey partitionKey : projectPartitionKeys) {
-                options.setPartitionKey(partitionKey);
-                projectContainer
-                    .getScripts()
-                    .getStoredProcedure("updateUsername")
-                    .execute(params, options);
-            }
-        }
-
-        userContainer.replaceItem(
-            user,
-            id,
-            new PartitionKey(id),
-            new CosmosItemRequestOptions()
+    List<UsernameUpdateJob> getIncompleteUsernameUpdateJobs() {
+        return multipleDocumentQuery(
+            GenericQueries
+                .queryByType(UsernameUpdateJob.class)
+                .addRestrictions(new RestrictionBuilder().eq("complete", false)),
+            userContainer,
+            UsernameUpdateJob.class
         );
     }
 
@@ -560,19 +1205,40 @@ public class Database {
         }
     }
 
+    private SelectQuery savedIdeaIdsQuery(String userId) {
+        return GenericQueries
+            .queryByPartitionKey(userId, UserSavedIdea.class)
+            .valueOf("ideaId")
+            .orderBy("timeSaved", Order.DESC);
+    }
+
     public DocumentPage<Idea> getSavedIdeasForUser(String userId, int pageNum) {
         return getDocumentPageFromPartitionKeyPage(
             pageQuery(
-                GenericQueries
-                    .queryByPartitionKey(userId, UserSavedIdea.class)
-                    .valueOf("ideaId")
-                    .orderBy("timeSaved", Order.DESC),
+                savedIdeaIdsQuery(userId),
                 userContainer,
                 pageNum,
                 String.class
             ),
             postContainer,
-            pageNum,
+            Idea.class
+        );
+    }
+
+    public DocumentPage<Idea> getSavedIdeasForUserByCursor(
+        String userId,
+        String cursor,
+        int pageSize
+    ) throws InvalidCursorException {
+        return getDocumentPageFromPartitionKeyPage(
+            cursorPageQuery(
+                savedIdeaIdsQuery(userId),
+                userContainer,
+                cursor,
+                pageSize,
+                String.class
+            ),
+            postContainer,
             Idea.class
         );
     }
@@ -592,42 +1258,84 @@ public class Database {
         );
     }
 
+    private SelectQuery postedIdeaIdsQuery(String userId) {
+        return GenericQueries
+            .queryByPartitionKey(userId, UserPostedIdea.class)
+            .valueOf("ideaId")
+            .orderBy("timeCreated", Order.DESC);
+    }
+
     public DocumentPage<Idea> getPostedIdeasForUser(
         String userId,
         int pageNum
     ) {
         return getDocumentPageFromPartitionKeyPage(
             pageQuery(
-                GenericQueries
-                    .queryByPartitionKey(userId, UserPostedIdea.class)
-                    .valueOf("ideaId")
-                    .orderBy("timeCreated", Order.DESC),
+                postedIdeaIdsQuery(userId),
                 userContainer,
                 pageNum,
                 String.class
             ),
             postContainer,
-            pageNum,
             Idea.class
         );
     }
 
+    public DocumentPage<Idea> getPostedIdeasForUserByCursor(
+        String userId,
+        String cursor,
+        int pageSize
+    ) throws InvalidCursorException {
+        return getDocumentPageFromPartitionKeyPage(
+            cursorPageQuery(
+                postedIdeaIdsQuery(userId),
+                userContainer,
+                cursor,
+                pageSize,
+                String.class
+            ),
+            postContainer,
+            Idea.class
+        );
+    }
+
+    private SelectQuery joinedProjectIdsQuery(String userId) {
+        return GenericQueries
+            .queryByPartitionKey(userId, UserJoinedProject.class)
+            .valueOf("projectId")
+            .orderBy("timeJoined", Order.DESC);
+    }
+
     public DocumentPage<Project> getJoinedProjectsForUser(
         String userId,
         int pageNum
     ) {
         return getDocumentPageFromPartitionKeyPage(
             pageQuery(
-                GenericQueries
-                    .queryByPartitionKey(userId, UserJoinedProject.class)
-                    .valueOf("projectId")
-                    .orderBy("timeJoined", Order.DESC),
+                joinedProjectIdsQuery(userId),
                 userContainer,
                 pageNum,
                 String.class
             ),
             projectContainer,
-            pageNum,
+            Project.class
+        );
+    }
+
+    public DocumentPage<Project> getJoinedProjectsForUserByCursor(
+        String userId,
+        String cursor,
+        int pageSize
+    ) throws InvalidCursorException {
+        return getDocumentPageFromPartitionKeyPage(
+            cursorPageQuery(
+                joinedProjectIdsQuery(userId),
+                userContainer,
+                cursor,
+                pageSize,
+                String.class
+            ),
+            projectContainer,
             Project.class
         );
     }
@@ -702,6 +1410,7 @@ public class Database {
             new PartitionKey(user.getUserId()),
             new CosmosItemRequestOptions()
         );
+        cacheUser(user);
     }
 
     public void deleteUser(String id) {
@@ -710,6 +1419,7 @@ public class Database {
             new PartitionKey(id),
             new CosmosItemRequestOptions()
         );
+        userCache.invalidate(id);
     }
 
     // Ideas
@@ -725,6 +1435,26 @@ public class Database {
         );
     }
 
+    /**
+     * Gets the ideas, including deleted ideas, modified at or after the
+     * given time.
+     * @param timestamp Epoch seconds, compared against the Cosmos _ts
+     */
+    public List<Idea> getIdeasModifiedSince(long timestamp) {
+        return modifiedSinceQuery(timestamp, postContainer, Idea.class);
+    }
+
+    public List<String> getAllIdeaIds() {
+        return multipleDocumentQuery(
+            GenericQueries
+                .queryByType(Idea.class)
+                .valueOf("id")
+                .addRestrictions(new RestrictionBuilder().eq("deleted", false)),
+            postContainer,
+            String.class
+        );
+    }
+
     public void createIdea(Idea idea) {
         // Save idea to database
         postContainer.createItem(idea);
@@ -732,8 +1462,7 @@ public class Database {
         // Update idea tags
         updateAddedAndRemovedTags(idea.getTags(), null, IdeaTag.class);
 
-        // Update idea index
-        indexController.tryIndexIdea(idea);
+        changeFeed.publish(idea);
 
         // Add initial author upvote
         upvoteIdea(idea.getIdeaId(), idea.getAuthorId());
@@ -770,24 +1499,23 @@ public class Database {
         );
     }
 
-    public DocumentPage<Idea> getIdeasByPageNum(int pageNum) {
-        return pageQuery(
-            GenericQueries
-                .queryByType(Idea.class)
-                .addRestrictions(new RestrictionBuilder().eq("deleted", false))
-                .orderBy("timeCreated", Order.DESC),
+    public Set<String> getIdeaIdsUpvotedByUser(
+        List<String> ideaIds,
+        String userId
+    ) {
+        return getPartitionKeysUpvotedByUser(
+            ideaIds,
+            userId,
             postContainer,
-            pageNum,
-            Idea.class
+            IdeaUpvote.class
         );
     }
 
-    public DocumentPage<Idea> getIdeasByTagAndPageNum(String tag, int pageNum) {
+    public DocumentPage<Idea> getIdeasByPageNum(int pageNum) {
         return pageQuery(
             GenericQueries
                 .queryByType(Idea.class)
                 .addRestrictions(new RestrictionBuilder().eq("deleted", false))
-                .arrayContains("tags", tag)
                 .orderBy("timeCreated", Order.DESC),
             postContainer,
             pageNum,
@@ -820,22 +1548,13 @@ public class Database {
     ) {
         idea.setTimeLastEdited(Instant.now().getEpochSecond());
 
-        indexController.tryUpdateIdea(idea);
-
         updateAddedAndRemovedTags(addedTags, removedTags, IdeaTag.class);
 
-        postContainer.replaceItem(
-            idea,
-            idea.getId(),
-            new PartitionKey(idea.getId()),
-            new CosmosItemRequestOptions()
-        );
+        replaceVotableDocument(idea, postContainer, Idea.class);
+        changeFeed.publish(idea);
     }
 
     public void deleteIdea(Idea idea) {
-        // Remove idea from index
-        indexController.tryDeleteIdea(idea.getIdeaId());
-
         // Remove ideaId from author's postedIdeaIds list
         UserPostedIdea postedIdea;
         try {
@@ -859,13 +1578,10 @@ public class Database {
             logger.warn(e.toString());
         }
 
+        // Deleted ideas are removed from the index when the change is fed
         idea.delete();
-        postContainer.replaceItem(
-            idea,
-            idea.getIdeaId(),
-            new PartitionKey(idea.getIdeaId()),
-            new CosmosItemRequestOptions()
-        );
+        replaceVotableDocument(idea, postContainer, Idea.class);
+        changeFeed.publish(idea);
     }
 
     // Comments
@@ -919,15 +1635,169 @@ public class Database {
     private <T extends ReceivedMessage> void createReceivedMessage(
         User recipient,
         T message
-    ) throws EmptyPointReadException, CosmosException {
+    ) throws CosmosException {
         userContainer.createItem(message);
 
-        recipient.setUnreadMessages(recipient.getUnreadMessages() + 1);
-        updateUser(recipient.getUserId(), recipient);
+        String recipientId = recipient.getUserId();
+        recipient =
+            readIfNoBody(
+                userContainer
+                    .patchItem(
+                        recipientId,
+                        new PartitionKey(recipientId),
+                        incrementUnreadMessages(),
+                        User.class
+                    )
+                    .getItem(),
+                recipientId,
+                recipientId,
+                userContainer,
+                User.class
+            );
+        cacheUser(recipient);
 
         notificationService.notifyUserOfUnreadMessages(recipient);
     }
 
+    private CosmosPatchOperations incrementUnreadMessages() {
+        return CosmosPatchOperations.create().increment("/unreadMessages", 1);
+    }
+
+    /**
+     * Delivers a received message to each recipient using bulk execution.
+     * Recipients are resolved with a single readMany, the messages are
+     * created in one bulk request, and the unread message counts of the
+     * recipients whose message was created are incremented in a second
+     * bulk request. A failure for one recipient does not stop delivery to
+     * the others.
+     * @param recipientIds Ids of the recipients
+     * @param messageForRecipient Creates the message for a recipient id
+     * @return Ids of the recipients the message could not be delivered to
+     */
+    private List<String> fanOutReceivedMessages(
+        List<String> recipientIds,
+        Function<String, ReceivedMessage> messageForRecipient
+    ) {
+        List<User> recipients = readDocumentsWithPartitionKeyIds(
+            recipientIds,
+            userContainer,
+            User.class
+        );
+        // Recipients that do not exist cannot be delivered to
+        Set<String> foundRecipientIds = recipients
+            .stream()
+            .map(User::getUserId)
+            .collect(Collectors.toSet());
+        List<String> failedRecipientIds = new ArrayList<>();
+        for (String recipientId : recipientIds) {
+            if (!foundRecipientIds.contains(recipientId)) {
+                failedRecipientIds.add(recipientId);
+            }
+        }
+        if (recipients.isEmpty()) {
+            return failedRecipientIds;
+        }
+
+        // Identity map, since operations are matched to their responses
+        // by reference
+        Map<CosmosItemOperation, String> createOperations = new IdentityHashMap<>();
+        for (User recipient : recipients) {
+            createOperations.put(
+                CosmosBulkOperations.getCreateItemOperation(
+                    messageForRecipient.apply(recipient.getUserId()),
+                    new PartitionKey(recipient.getUserId())
+                ),
+                recipient.getUserId()
+            );
+        }
+        logger.debug(
+            "fanOutReceivedMessages: creating " +
+            createOperations.size() +
+            " messages"
+        );
+
+        Map<CosmosItemOperation, String> patchOperations = new IdentityHashMap<>();
+        for (CosmosBulkOperationResponse<Object> response : userContainer.executeBulkOperations(
+            createOperations.keySet()
+        )) {
+            String recipientId = createOperations.get(response.getOperation());
+            if (isBulkOperationSuccessful(response, recipientId)) {
+                patchOperations.put(
+                    CosmosBulkOperations.getPatchItemOperation(
+                        recipientId,
+                        new PartitionKey(recipientId),
+                        incrementUnreadMessages()
+                    ),
+                    recipientId
+                );
+            } else {
+                failedRecipientIds.add(recipientId);
+            }
+        }
+        if (patchOperations.isEmpty()) {
+            return failedRecipientIds;
+        }
+
+        for (CosmosBulkOperationResponse<Object> response : userContainer.executeBulkOperations(
+            patchOperations.keySet()
+        )) {
+            String recipientId = patchOperations.get(response.getOperation());
+            if (isBulkOperationSuccessful(response, recipientId)) {
+                try {
+                    User recipient = readIfNoBody(
+                        response.getResponse().getItem(User.class),
+                        recipientId,
+                        recipientId,
+                        userContainer,
+                        User.class
+                    );
+                    cacheUser(recipient);
+                    notificationService.notifyUserOfUnreadMessages(recipient);
+                } catch (CosmosException e) {
+                    // The message was delivered, but the recipient could
+                    // not be read to notify them
+                    userCache.invalidate(recipientId);
+                    logger.warn(
+                        "Failed to read recipient " +
+                        recipientId +
+                        " after delivering a message",
+                        e
+                    );
+                }
+            } else {
+                // The message was delivered, but the unread count is off
+                failedRecipientIds.add(recipientId);
+            }
+        }
+        return failedRecipientIds;
+    }
+
+    private boolean isBulkOperationSuccessful(
+        CosmosBulkOperationResponse<Object> response,
+        String recipientId
+    ) {
+        if (
+            response.getResponse() != null &&
+            response.getResponse().isSuccessStatusCode()
+        ) {
+            return true;
+        }
+        logger.error(
+            "Bulk " +
+            response.getOperation().getOperationType() +
+            " for recipient " +
+            recipientId +
+            " failed with status " +
+            (
+                response.getResponse() != null
+                    ? response.getResponse().getStatusCode()
+                    : "unknown"
+            ),
+            response.getException()
+        );
+        return false;
+    }
+
     private <T extends SentMessage> void createSentMessage(T message)
         throws CosmosException {
         userContainer.createItem(message);
@@ -981,20 +1851,29 @@ public class Database {
             User sender = getUser(senderId);
             Project recipientProject = getProject(recipientProjectId);
 
-            for (UsernameIdPair recipientUsernameIdPair : recipientProject.getTeamMembers()) {
-                User recipient = getUser(recipientUsernameIdPair.getUserId());
+            List<String> recipientIds = recipientProject
+                .getTeamMembers()
+                .stream()
+                .map(teamMember -> teamMember.getUserId())
                 // Skip the user sending the message
-                if (recipient.getUserId().equals(senderId)) {
-                    continue;
-                }
-                ReceivedGroupMessage receivedGroupMessage = new ReceivedGroupMessage(
-                    recipient.getUserId(),
-                    sender.getUsername(),
-                    content,
-                    recipientProjectId,
-                    recipientProject.getName()
+                .filter(userId -> !userId.equals(senderId))
+                .collect(Collectors.toList());
+            List<String> failedRecipientIds = fanOutReceivedMessages(
+                recipientIds,
+                recipientId ->
+                    new ReceivedGroupMessage(
+                        recipientId,
+                        sender.getUsername(),
+                        content,
+                        recipientProjectId,
+                        recipientProject.getName()
+                    )
+            );
+            if (!failedRecipientIds.isEmpty()) {
+                logger.error(
+                    "Group message failed to send to recipients " +
+                    failedRecipientIds
                 );
-                createReceivedMessage(recipient, receivedGroupMessage);
             }
 
             SentGroupMessage sentGroupMessage = new SentGroupMessage(
@@ -1015,16 +1894,28 @@ public class Database {
     ) throws EmptyPointReadException {
         try {
             Project recipientProject = getProject(recipientProjectId);
-            for (UsernameIdPair recipientUsernameIdPair : recipientProject.getTeamMembers()) {
-                User recipient = getUser(recipientUsernameIdPair.getUserId());
-                ReceivedGroupMessage receivedGroupMessage = new ReceivedGroupMessage(
-                    recipient.getUserId(),
-                    "projectideas",
-                    content,
-                    recipientProjectId,
-                    recipientProject.getName()
+
+            List<String> recipientIds = recipientProject
+                .getTeamMembers()
+                .stream()
+                .map(teamMember -> teamMember.getUserId())
+                .collect(Collectors.toList());
+            List<String> failedRecipientIds = fanOutReceivedMessages(
+                recipientIds,
+                recipientId ->
+                    new ReceivedGroupMessage(
+                        recipientId,
+                        "projectideas",
+                        content,
+                        recipientProjectId,
+                        recipientProject.getName()
+                    )
+            );
+            if (!failedRecipientIds.isEmpty()) {
+                logger.error(
+                    "Group admin message failed to send to recipients " +
+                    failedRecipientIds
                 );
-                createReceivedMessage(recipient, receivedGroupMessage);
             }
         } catch (CosmosException e) {
             logger.error("Group admin message failed to send.", e);
@@ -1043,34 +1934,70 @@ public class Database {
         );
     }
 
+    private SelectQuery receivedMessagesQuery(String recipientId) {
+        return GenericQueries
+            .queryByPartitionKey(recipientId, ReceivedMessage.class)
+            .orderBy("timeSent", Order.DESC);
+    }
+
     public DocumentPage<ReceivedMessage> getReceivedMessagesByPage(
         String recipientId,
         int pageNum
     ) {
         return pageQuery(
-            GenericQueries
-                .queryByPartitionKey(recipientId, ReceivedMessage.class)
-                .orderBy("timeSent", Order.DESC),
+            receivedMessagesQuery(recipientId),
             userContainer,
             pageNum,
             ReceivedMessage.class
         );
     }
 
+    public DocumentPage<ReceivedMessage> getReceivedMessagesByCursor(
+        String recipientId,
+        String cursor,
+        int pageSize
+    ) throws InvalidCursorException {
+        return cursorPageQuery(
+            receivedMessagesQuery(recipientId),
+            userContainer,
+            cursor,
+            pageSize,
+            ReceivedMessage.class
+        );
+    }
+
+    private SelectQuery sentMessagesQuery(String senderId) {
+        return GenericQueries
+            .queryByPartitionKey(senderId, SentMessage.class)
+            .orderBy("timeSent", Order.DESC);
+    }
+
     public DocumentPage<SentMessage> getSentMessagesByPage(
         String senderId,
         int pageNum
     ) {
         return pageQuery(
-            GenericQueries
-                .queryByPartitionKey(senderId, SentMessage.class)
-                .orderBy("timeSent", Order.DESC),
+            sentMessagesQuery(senderId),
             userContainer,
             pageNum,
             SentMessage.class
         );
     }
 
+    public DocumentPage<SentMessage> getSentMessagesByCursor(
+        String senderId,
+        String cursor,
+        int pageSize
+    ) throws InvalidCursorException {
+        return cursorPageQuery(
+            sentMessagesQuery(senderId),
+            userContainer,
+            cursor,
+            pageSize,
+            SentMessage.class
+        );
+    }
+
     public int getNumberOfUnreadMessages(String recipientId)
         throws EmptyPointReadException {
         return getUser(recipientId).getUnreadMessages();
@@ -1078,11 +2005,10 @@ public class Database {
 
     public void markAllReceivedMessagesAsRead(String recipientId)
         throws EmptyPointReadException {
-        User recipient = getUser(recipientId);
-        recipient.setUnreadMessages(0);
-        updateUser(recipientId, recipient);
+        // Ensure the recipient exists
+        getUser(recipientId);
 
-        multipleDocumentQuery(
+        List<String> unreadMessageIds = multipleDocumentQuery(
             GenericQueries
                 .queryByType(ReceivedMessage.class)
                 .valueOf("id")
@@ -1092,18 +2018,68 @@ public class Database {
                 ),
             userContainer,
             String.class
-        )
-            .stream()
-            .forEach(
-                messageId -> {
-                    ReceivedMessage message;
+        );
+
+        // All messages share the recipient's partition, so they can be
+        // patched in transactional batches. The unread count is reset in
+        // the first batch.
+        CosmosPatchOperations markAsRead = CosmosPatchOperations
+            .create()
+            .set("/unread", false);
+        CosmosPatchOperations resetUnreadMessages = CosmosPatchOperations
+            .create()
+            .set("/unreadMessages", 0);
+        int start = 0;
+        do {
+            boolean resetUser = start == 0;
+            int end = Math.min(
+                start + MAX_BATCH_OPERATIONS - (resetUser ? 1 : 0),
+                unreadMessageIds.size()
+            );
+            List<String> messageIds = unreadMessageIds.subList(start, end);
+
+            CosmosBatch batch = CosmosBatch.createCosmosBatch(
+                new PartitionKey(recipientId)
+            );
+            if (resetUser) {
+                batch.patchItemOperation(recipientId, resetUnreadMessages);
+            }
+            for (String messageId : messageIds) {
+                batch.patchItemOperation(messageId, markAsRead);
+            }
+
+            logger.debug(
+                "markAllReceivedMessagesAsRead: batch of " +
+                batch.getOperations().size() +
+                " operations, partition key = " +
+                recipientId
+            );
+            if (!userContainer.executeCosmosBatch(batch).isSuccessStatusCode()) {
+                // A message may have been deleted since the query, which
+                // fails the whole batch, so patch the messages one by one
+                if (resetUser) {
+                    userContainer.patchItem(
+                        recipientId,
+                        new PartitionKey(recipientId),
+                        resetUnreadMessages,
+                        User.class
+                    );
+                }
+                for (String messageId : messageIds) {
                     try {
-                        message = getReceivedMessage(recipientId, messageId);
-                        message.setUnread(false);
-                        updateReceivedMessage(message);
-                    } catch (EmptyPointReadException ignored) {}
+                        userContainer.patchItem(
+                            messageId,
+                            new PartitionKey(recipientId),
+                            markAsRead,
+                            ReceivedMessage.class
+                        );
+                    } catch (NotFoundException ignored) {}
                 }
-            );
+            }
+            start = end;
+        } while (start < unreadMessageIds.size());
+
+        userCache.invalidate(recipientId);
     }
 
     public void updateReceivedMessage(ReceivedMessage message) {
@@ -1135,7 +2111,7 @@ public class Database {
 
     public void createTag(Tag tag) {
         tagContainer.createItem(tag);
-        indexController.tryIndexTag(tag);
+        changeFeed.publish(tag);
     }
 
     public List<IdeaTag> getIdeaTags() {
@@ -1154,6 +2130,14 @@ public class Database {
         );
     }
 
+    /**
+     * Gets the tags modified at or after the given time.
+     * @param timestamp Epoch seconds, compared against the Cosmos _ts
+     */
+    public List<Tag> getTagsModifiedSince(long timestamp) {
+        return modifiedSinceQuery(timestamp, tagContainer, Tag.class);
+    }
+
     public List<Tag> getAllTags() {
         return multipleDocumentQuery(
             GenericQueries.queryByType(Tag.class),
@@ -1198,6 +2182,7 @@ public class Database {
             new PartitionKey(classType.getSimpleName()),
             new CosmosItemRequestOptions()
         );
+        changeFeed.publish(tag);
     }
 
     public <T extends Tag> void decrementTagUsages(
@@ -1212,6 +2197,7 @@ public class Database {
             new PartitionKey(classType.getSimpleName()),
             new CosmosItemRequestOptions()
         );
+        changeFeed.publish(tag);
     }
 
     private <T extends Tag> void updateAddedAndRemovedTags(
@@ -1248,6 +2234,8 @@ public class Database {
 
     public void deleteTag(Tag tag) {
         tagContainer.deleteItem(tag, new CosmosItemRequestOptions());
+        // The change feed does not include deletes
+        indexController.tryDeleteTag(tag);
     }
 
     // Projects
@@ -1257,7 +2245,7 @@ public class Database {
 
         updateAddedAndRemovedTags(project.getTags(), null, ProjectTag.class);
 
-        if (project.isPublicProject()) indexController.tryIndexProject(project);
+        changeFeed.publish(project);
 
         upvoteProject(project.getId(), projectCreatorId);
 
@@ -1292,6 +2280,18 @@ public class Database {
         );
     }
 
+    public Set<String> getProjectIdsUpvotedByUser(
+        List<String> projectIds,
+        String userId
+    ) {
+        return getPartitionKeysUpvotedByUser(
+            projectIds,
+            userId,
+            projectContainer,
+            ProjectUpvote.class
+        );
+    }
+
     public DocumentPage<Project> getPublicProjectsByPageNum(int pageNum) {
         return pageQuery(
             GenericQueries
@@ -1319,6 +2319,28 @@ public class Database {
         );
     }
 
+    /**
+     * Gets the projects, public or not, modified at or after the given
+     * time.
+     * @param timestamp Epoch seconds, compared against the Cosmos _ts
+     */
+    public List<Project> getProjectsModifiedSince(long timestamp) {
+        return modifiedSinceQuery(timestamp, projectContainer, Project.class);
+    }
+
+    public List<String> getAllPublicProjectIds() {
+        return multipleDocumentQuery(
+            GenericQueries
+                .queryByType(Project.class)
+                .valueOf("id")
+                .addRestrictions(
+                    new RestrictionBuilder().eq("publicProject", true)
+                ),
+            projectContainer,
+            String.class
+        );
+    }
+
     public Project getProject(String projectId) throws EmptyPointReadException {
         return readDocument(
             projectId,
@@ -1369,24 +2391,6 @@ public class Database {
         );
     }
 
-    public DocumentPage<Project> getPublicProjectsByTagAndPageNum(
-        String tag,
-        int pageNum
-    ) {
-        return pageQuery(
-            GenericQueries
-                .queryByType(Project.class)
-                .arrayContains("tags", tag)
-                .addRestrictions(
-                    new RestrictionBuilder().eq("publicProject", true)
-                )
-                .orderBy("timeCreated", Order.DESC),
-            projectContainer,
-            pageNum,
-            Project.class
-        );
-    }
-
     public List<Project> getProjectsInList(List<String> projectIds) {
         return multipleDocumentQuery(
             GenericQueries
@@ -1416,22 +2420,12 @@ public class Database {
         List<String> addedTags,
         List<String> removedTags
     ) {
-        if (toPublic) {
-            indexController.tryIndexProject(project);
-        } else if (toPrivate) {
-            indexController.tryDeleteProject(project.getId());
-        } else {
-            indexController.tryUpdateProject(project);
-        }
-
         updateAddedAndRemovedTags(addedTags, removedTags, ProjectTag.class);
 
-        projectContainer.replaceItem(
-            project,
-            project.getId(),
-            new PartitionKey(project.getProjectId()),
-            new CosmosItemRequestOptions()
-        );
+        // Projects made private are removed from the index when the
+        // change is fed
+        replaceVotableDocument(project, projectContainer, Project.class);
+        changeFeed.publish(project);
     }
 
     /**
@@ -1459,7 +2453,7 @@ public class Database {
             new CosmosItemRequestOptions()
         );
 
-        //Remove project from index
+        // The change feed does not include deletes
         indexController.tryDeleteProject(projectId);
     }
 }
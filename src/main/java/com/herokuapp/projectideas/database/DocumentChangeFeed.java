@@ -0,0 +1,16 @@
+package com.herokuapp.projectideas.database;
+
+import com.herokuapp.projectideas.database.document.RootDocument;
+
+/**
+ * Source of the document changes that keep the search indexes up to
+ * date. Changes are delivered to the IndexController asynchronously,
+ * after they have been written to the database.
+ */
+public interface DocumentChangeFeed {
+    /**
+     * Called by Database after it writes a document. Feeds that read
+     * changes from the database itself ignore this.
+     */
+    void publish(RootDocument document);
+}
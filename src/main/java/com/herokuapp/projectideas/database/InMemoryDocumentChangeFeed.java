@@ -0,0 +1,58 @@
+package com.herokuapp.projectideas.database;
+
+import com.herokuapp.projectideas.database.document.RootDocument;
+import com.herokuapp.projectideas.search.IndexController;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Change feed of the documents written by this instance, for running
+ * without the Cosmos change feed (for example in tests). Changes made by
+ * other instances are not seen.
+ */
+@Component
+@ConditionalOnProperty(
+    name = "projectideas.changeFeed.mode",
+    havingValue = "memory"
+)
+public class InMemoryDocumentChangeFeed implements DocumentChangeFeed {
+
+    @Autowired
+    @Lazy
+    IndexController indexController;
+
+    @Autowired
+    Executor taskExecutor;
+
+    private static final Logger logger = LoggerFactory.getLogger(
+        InMemoryDocumentChangeFeed.class
+    );
+
+    @Override
+    public void publish(RootDocument document) {
+        if (document == null) {
+            return;
+        }
+        taskExecutor.execute(
+            () -> {
+                try {
+                    indexController.applyChanges(List.of(document));
+                } catch (Exception e) {
+                    logger.error(
+                        "Failed to index change to " +
+                        document.getClass().getSimpleName() +
+                        " " +
+                        document.getPartitionKey(),
+                        e
+                    );
+                }
+            }
+        );
+    }
+}
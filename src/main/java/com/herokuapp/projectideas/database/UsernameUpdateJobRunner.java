@@ -0,0 +1,364 @@
+package com.herokuapp.projectideas.database;
+
+import com.azure.cosmos.CosmosException;
+import com.herokuapp.projectideas.database.document.user.UsernameUpdateJob;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs username denormalization in the background. After a user changes
+ * their username, the updateUsername stored procedure has to run in every
+ * idea and project partition referencing the user. Partitions are updated
+ * in parallel on a bounded pool, throttled requests are retried after
+ * the delay Cosmos asks for, and progress is checkpointed to a
+ * UsernameUpdateJob document so that jobs interrupted by a restart are
+ * resumed.
+ *
+ * An instance holds a job with a lease on its document, renewed by its
+ * checkpoints, and every write of the document is conditional on its
+ * ETag. A job whose document was superseded or claimed by another
+ * instance stops at its next checkpoint. Jobs of the same user run one at
+ * a time on an instance, so that partition updates still in flight for a
+ * superseded job cannot overwrite the newer job's username.
+ */
+@Component
+public class UsernameUpdateJobRunner {
+
+    @Autowired
+    @Lazy
+    Database database;
+
+    @Autowired
+    Executor taskExecutor;
+
+    private final ExecutorService partitionExecutor;
+    private final int checkpointInterval;
+
+    /**
+     * Job currently running for each user. A job that is no longer the
+     * active job for its user has been superseded and stops early.
+     */
+    private final Map<String, UsernameUpdateJob> activeJobs = new ConcurrentHashMap<>();
+
+    /**
+     * Last run scheduled for each user, which the user's next run waits
+     * for
+     */
+    private final Map<String, CompletableFuture<Void>> runs = new ConcurrentHashMap<>();
+
+    /**
+     * Identifies this instance as the owner of the jobs it runs
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long BASE_BACKOFF_MILLIS = 100;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final long LEASE_MILLIS = 120000;
+
+    private static final Logger logger = LoggerFactory.getLogger(
+        UsernameUpdateJobRunner.class
+    );
+
+    public UsernameUpdateJobRunner(
+        @Value("${projectideas.usernameUpdate.parallelism:4}") int parallelism,
+        @Value(
+            "${projectideas.usernameUpdate.checkpointInterval:10}"
+        ) int checkpointInterval
+    ) {
+        this.partitionExecutor = Executors.newFixedThreadPool(parallelism);
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Starts a job updating every reference to the user's username,
+     * superseding any job already running for the user.
+     */
+    public void start(String userId, String username) {
+        UsernameUpdateJob job = new UsernameUpdateJob(userId, username);
+        renewLease(job);
+        activeJobs.compute(
+            userId,
+            (key, previous) -> {
+                // Replaces the document of any job this one supersedes
+                database.saveUsernameUpdateJob(job);
+                schedule(job);
+                return job;
+            }
+        );
+    }
+
+    /**
+     * Resumes incomplete jobs whose lease has expired, such as jobs of an
+     * instance that stopped before completing them
+     */
+    @Scheduled(fixedDelay = LEASE_MILLIS)
+    public void resumeIncompleteJobs() {
+        for (UsernameUpdateJob incompleteJob : database.getIncompleteUsernameUpdateJobs()) {
+            if (
+                incompleteJob.getLeaseExpiry() > System.currentTimeMillis() ||
+                activeJobs.containsKey(incompleteJob.getUserId())
+            ) {
+                continue;
+            }
+            try {
+                // Claiming the job fails if another instance claims it
+                // first, or it is superseded, since it was read
+                UsernameUpdateJob job = database.readUsernameUpdateJob(
+                    incompleteJob.getUserId()
+                );
+                if (
+                    job.isComplete() ||
+                    job.getLeaseExpiry() > System.currentTimeMillis()
+                ) {
+                    continue;
+                }
+                renewLease(job);
+                if (!database.replaceUsernameUpdateJob(job)) {
+                    continue;
+                }
+                logger.info(
+                    "Resuming username update job for user " + job.getUserId()
+                );
+                activeJobs.computeIfAbsent(
+                    job.getUserId(),
+                    key -> {
+                        schedule(job);
+                        return job;
+                    }
+                );
+            } catch (CosmosException e) {
+                logger.warn(
+                    "Failed to claim username update job for user " +
+                    incompleteJob.getUserId(),
+                    e
+                );
+            }
+        }
+    }
+
+    /**
+     * Runs a job once the user's previous job has finished
+     */
+    private void schedule(UsernameUpdateJob job) {
+        CompletableFuture<Void> run = runs.compute(
+            job.getUserId(),
+            (key, previousRun) ->
+                (
+                    previousRun != null
+                        ? previousRun.exceptionally(e -> null)
+                        : CompletableFuture.<Void>completedFuture(null)
+                ).thenRunAsync(() -> run(job), taskExecutor)
+        );
+        run.whenComplete((result, e) -> runs.remove(job.getUserId(), run));
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        partitionExecutor.shutdownNow();
+    }
+
+    private void run(UsernameUpdateJob job) {
+        try {
+            if (!job.isPartitionsDiscovered()) {
+                List<String> ideaIds = database.getIdeaIdsWithAuthor(
+                    job.getUserId()
+                );
+                List<String> projectIds = database.getProjectIdsWithMemberOrRequester(
+                    job.getUserId()
+                );
+                synchronized (job) {
+                    job.setRemainingIdeaIds(new ArrayList<>(ideaIds));
+                    job.setRemainingProjectIds(new ArrayList<>(projectIds));
+                    job.setTotalPartitions(ideaIds.size() + projectIds.size());
+                    job.setPartitionsDiscovered(true);
+                    checkpoint(job);
+                }
+            }
+
+            List<Future<?>> tasks = new ArrayList<>();
+            synchronized (job) {
+                job.setFailedPartitions(0);
+                for (String ideaId : new ArrayList<>(job.getRemainingIdeaIds())) {
+                    tasks.add(
+                        partitionExecutor.submit(
+                            () -> updatePartition(job, ideaId, true)
+                        )
+                    );
+                }
+                for (String projectId : new ArrayList<>(
+                    job.getRemainingProjectIds()
+                )) {
+                    tasks.add(
+                        partitionExecutor.submit(
+                            () -> updatePartition(job, projectId, false)
+                        )
+                    );
+                }
+            }
+            // Wait for every partition, so that no update of this job is
+            // in flight once it returns
+            ExecutionException failure = null;
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+
+            synchronized (job) {
+                // Partitions that failed stay in the remaining lists and
+                // are retried the next time incomplete jobs are resumed
+                job.setComplete(
+                    job.getRemainingIdeaIds().isEmpty() &&
+                    job.getRemainingProjectIds().isEmpty()
+                );
+                checkpoint(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CosmosException e) {
+            logger.error(
+                "Username update job for user " + job.getUserId() + " failed",
+                e
+            );
+        } finally {
+            activeJobs.remove(job.getUserId(), job);
+        }
+    }
+
+    private void updatePartition(
+        UsernameUpdateJob job,
+        String partitionKey,
+        boolean ideaPartition
+    ) {
+        for (int attempt = 1;; attempt++) {
+            if (isSuperseded(job)) {
+                return;
+            }
+            try {
+                if (ideaPartition) {
+                    database.updateUsernameInIdeaPartition(
+                        partitionKey,
+                        job.getUserId(),
+                        job.getUsername()
+                    );
+                } else {
+                    database.updateUsernameInProjectPartition(
+                        partitionKey,
+                        job.getUserId(),
+                        job.getUsername()
+                    );
+                }
+                break;
+            } catch (CosmosException e) {
+                if (
+                    e.getStatusCode() != TOO_MANY_REQUESTS ||
+                    attempt == MAX_ATTEMPTS
+                ) {
+                    logger.error(
+                        "Failed to update username in partition " +
+                        partitionKey,
+                        e
+                    );
+                    synchronized (job) {
+                        job.setFailedPartitions(job.getFailedPartitions() + 1);
+                    }
+                    return;
+                }
+                try {
+                    Thread.sleep(getBackoffMillis(e, attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        synchronized (job) {
+            if (ideaPartition) {
+                job.getRemainingIdeaIds().remove(partitionKey);
+            } else {
+                job.getRemainingProjectIds().remove(partitionKey);
+            }
+            job.setCompletedPartitions(job.getCompletedPartitions() + 1);
+            // Renew the lease before it expires, even between checkpoints
+            boolean leaseExpiring =
+                job.getLeaseExpiry() - System.currentTimeMillis() <
+                LEASE_MILLIS / 2;
+            if (
+                job.getCompletedPartitions() % checkpointInterval == 0 ||
+                leaseExpiring
+            ) {
+                checkpoint(job);
+            }
+        }
+    }
+
+    private long getBackoffMillis(CosmosException e, int attempt) {
+        Duration retryAfter = e.getRetryAfterDuration();
+        if (retryAfter != null && !retryAfter.isZero()) {
+            return retryAfter.toMillis();
+        }
+        return BASE_BACKOFF_MILLIS << Math.min(attempt, 6);
+    }
+
+    private boolean isSuperseded(UsernameUpdateJob job) {
+        return activeJobs.get(job.getUserId()) != job;
+    }
+
+    /**
+     * Saves the job's progress and renews its lease, unless the job has
+     * been superseded or claimed by another instance since it was last
+     * saved, in which case the job stops.
+     */
+    private void checkpoint(UsernameUpdateJob job) {
+        if (isSuperseded(job)) {
+            return;
+        }
+        renewLease(job);
+        try {
+            if (!database.replaceUsernameUpdateJob(job)) {
+                logger.info(
+                    "Username update job for user " +
+                    job.getUserId() +
+                    " was superseded or claimed by another instance"
+                );
+                activeJobs.remove(job.getUserId(), job);
+            }
+        } catch (CosmosException e) {
+            logger.warn(
+                "Failed to checkpoint username update job for user " +
+                job.getUserId(),
+                e
+            );
+        }
+    }
+
+    private void renewLease(UsernameUpdateJob job) {
+        job.setOwner(instanceId);
+        job.setLeaseExpiry(System.currentTimeMillis() + LEASE_MILLIS);
+    }
+}
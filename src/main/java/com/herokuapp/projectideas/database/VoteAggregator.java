@@ -0,0 +1,237 @@
+package com.herokuapp.projectideas.database;
+
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.implementation.NotFoundException;
+import com.herokuapp.projectideas.database.document.post.Idea;
+import com.herokuapp.projectideas.database.document.project.Project;
+import com.herokuapp.projectideas.database.document.vote.Votable;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind buffer for upvote counts. When enabled, upvote documents
+ * are still written synchronously, but the resulting change to a
+ * document's upvote count is accumulated in memory and applied to the
+ * database and search index on a fixed interval. This turns a burst of
+ * votes on one document into a single patch and a single reindex.
+ */
+@Component
+public class VoteAggregator {
+
+    @Autowired
+    @Lazy
+    Database database;
+
+    private final boolean enabled;
+    private final long maxStalenessMillis;
+
+    /**
+     * Pending upvote count changes keyed by document id. All changes to
+     * an entry happen inside ConcurrentHashMap.compute, which locks only
+     * the entry's bin, so votes on different documents do not contend.
+     */
+    private final Map<String, PendingVotes> pendingIdeaVotes = new ConcurrentHashMap<>();
+    private final Map<String, PendingVotes> pendingProjectVotes = new ConcurrentHashMap<>();
+
+    private static final int REQUEST_TIMEOUT = 408;
+    private static final int RETRY_WITH = 449;
+
+    private static final Logger logger = LoggerFactory.getLogger(
+        VoteAggregator.class
+    );
+
+    private static class PendingVotes {
+
+        private int delta;
+        private final long firstRecorded;
+        /**
+         * Whether a flush failed without it being known whether the delta
+         * was applied, so the count has to be recounted from the upvotes,
+         * which already include the delta
+         */
+        private boolean recount;
+
+        private PendingVotes(long firstRecorded) {
+            this.firstRecorded = firstRecorded;
+        }
+    }
+
+    public VoteAggregator(
+        @Value("${projectideas.voteAggregation.enabled:false}") boolean enabled,
+        @Value(
+            "${projectideas.voteAggregation.maxStalenessMs:10000}"
+        ) long maxStalenessMillis,
+        MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.maxStalenessMillis = maxStalenessMillis;
+
+        Gauge
+            .builder("projectideas.votes.pending", pendingIdeaVotes, Map::size)
+            .description("Documents with upvote count changes not yet flushed")
+            .tag("type", "idea")
+            .register(meterRegistry);
+        Gauge
+            .builder(
+                "projectideas.votes.pending",
+                pendingProjectVotes,
+                Map::size
+            )
+            .description("Documents with upvote count changes not yet flushed")
+            .tag("type", "project")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records a change to a document's upvote count to be applied on the
+     * next flush. If the document's oldest pending change is older than
+     * the maximum staleness (for example because flushes are falling
+     * behind), its changes are applied immediately instead.
+     */
+    public void record(
+        Class<? extends Votable> documentType,
+        String id,
+        int delta
+    ) {
+        long now = System.currentTimeMillis();
+        Map<String, PendingVotes> pendingVotes = getPendingVotes(documentType);
+        PendingVotes pending = pendingVotes.compute(
+            id,
+            (key, existing) -> {
+                if (existing == null) {
+                    existing = new PendingVotes(now);
+                }
+                existing.delta += delta;
+                return existing;
+            }
+        );
+        if (now - pending.firstRecorded >= maxStalenessMillis) {
+            flush(documentType, id);
+        }
+    }
+
+    @Scheduled(
+        fixedDelayString = "${projectideas.voteAggregation.flushIntervalMs:2000}"
+    )
+    public void flushAll() {
+        for (String id : pendingIdeaVotes.keySet()) {
+            flush(Idea.class, id);
+        }
+        for (String id : pendingProjectVotes.keySet()) {
+            flush(Project.class, id);
+        }
+    }
+
+    @PreDestroy
+    private void drain() {
+        flushAll();
+        int remaining = pendingIdeaVotes.size() + pendingProjectVotes.size();
+        if (remaining > 0) {
+            logger.error(
+                "Shutting down with upvote counts not flushed for " +
+                remaining +
+                " documents"
+            );
+        }
+    }
+
+    private void flush(Class<? extends Votable> documentType, String id) {
+        // Once removed, an entry is no longer modified by record
+        PendingVotes pending = getPendingVotes(documentType).remove(id);
+        if (pending == null || (pending.delta == 0 && !pending.recount)) {
+            return;
+        }
+        try {
+            if (pending.recount) {
+                database.recountUpvotes(documentType, id);
+            } else {
+                database.applyUpvoteDelta(documentType, id, pending.delta);
+            }
+        } catch (NotFoundException e) {
+            // The document has been deleted, so there is nothing to update
+        } catch (CosmosException e) {
+            logger.warn(
+                "Failed to flush upvotes for " +
+                documentType.getSimpleName() +
+                " " +
+                id +
+                ", will retry",
+                e
+            );
+            // The increment is not idempotent, so unless it certainly was
+            // not applied, retrying it could count the votes twice
+            if (!pending.recount && !isNotApplied(e)) {
+                pending.recount = true;
+            }
+            requeue(documentType, id, pending);
+        }
+    }
+
+    /**
+     * @return Whether a failed write was certainly not applied. Timeouts,
+     * retry-with and server errors may have been applied.
+     */
+    private static boolean isNotApplied(CosmosException e) {
+        int statusCode = e.getStatusCode();
+        return (
+            statusCode >= 400 &&
+            statusCode < 500 &&
+            statusCode != REQUEST_TIMEOUT &&
+            statusCode != RETRY_WITH
+        );
+    }
+
+    /**
+     * Merges the changes of a failed flush back into the pending changes,
+     * keeping the time of the oldest one, so that changes which keep
+     * failing to flush still count toward the maximum staleness.
+     */
+    private void requeue(
+        Class<? extends Votable> documentType,
+        String id,
+        PendingVotes failed
+    ) {
+        getPendingVotes(documentType)
+            .merge(
+                id,
+                failed,
+                (existing, requeued) -> {
+                    PendingVotes merged = new PendingVotes(
+                        Math.min(existing.firstRecorded, requeued.firstRecorded)
+                    );
+                    merged.delta = existing.delta + requeued.delta;
+                    merged.recount = existing.recount || requeued.recount;
+                    return merged;
+                }
+            );
+    }
+
+    private Map<String, PendingVotes> getPendingVotes(
+        Class<? extends Votable> documentType
+    ) {
+        if (Idea.class.isAssignableFrom(documentType)) {
+            return pendingIdeaVotes;
+        } else if (Project.class.isAssignableFrom(documentType)) {
+            return pendingProjectVotes;
+        }
+        throw new IllegalArgumentException(
+            "The class " +
+            documentType.getName() +
+            " does not support aggregated upvotes."
+        );
+    }
+}
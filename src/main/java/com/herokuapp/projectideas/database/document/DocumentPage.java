@@ -10,9 +10,20 @@ public class DocumentPage<T> {
 
     private List<T> documents;
     private boolean lastPage;
+    /**
+     * Opaque cursor for the page following this one.
+     * Only set for pages retrieved by cursor.
+     */
+    private String cursor;
 
     public DocumentPage(List<T> documents, boolean lastPage) {
         this.documents = documents;
         this.lastPage = lastPage;
     }
+
+    public DocumentPage(List<T> documents, boolean lastPage, String cursor) {
+        this.documents = documents;
+        this.lastPage = lastPage;
+        this.cursor = cursor;
+    }
 }
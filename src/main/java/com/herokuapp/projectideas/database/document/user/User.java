@@ -39,6 +39,19 @@ public class User implements RootDocument, Authorization {
         this.emailSubscriptionId = UUID.randomUUID().toString();
     }
 
+    public User(User user) {
+        this.id = user.id;
+        this.type = user.type;
+        this.userId = user.userId;
+        this.username = user.username;
+        this.email = user.email;
+        this.timeCreated = user.timeCreated;
+        this.unreadMessages = user.unreadMessages;
+        this.admin = user.admin;
+        this.notificationPreference = user.notificationPreference;
+        this.emailSubscriptionId = user.emailSubscriptionId;
+    }
+
     public String getPartitionKey() {
         return userId;
     }
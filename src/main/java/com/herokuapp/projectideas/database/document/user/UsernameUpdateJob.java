@@ -0,0 +1,70 @@
+package com.herokuapp.projectideas.database.document.user;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.herokuapp.projectideas.database.document.RootDocument;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.*;
+
+/**
+ * Checkpoint of a background job copying a user's new username onto the
+ * ideas and projects that reference it. There is at most one job per
+ * user; starting a new job replaces the previous one.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class UsernameUpdateJob implements RootDocument {
+
+    public static final String ID = "UsernameUpdateJob";
+
+    protected String id;
+    protected String type;
+    protected String userId;
+    protected String username;
+    protected long timeStarted;
+    /**
+     * Whether the idea and project partitions referencing the user have
+     * been found. Until then, the remaining partition lists are empty.
+     */
+    protected boolean partitionsDiscovered;
+    protected List<String> remainingIdeaIds;
+    protected List<String> remainingProjectIds;
+    protected int totalPartitions;
+    protected int completedPartitions;
+    protected int failedPartitions;
+    protected boolean complete;
+    /**
+     * Instance running the job, which holds it until the lease expiry, in
+     * epoch milliseconds. Jobs whose lease has expired may be resumed by
+     * any instance.
+     */
+    protected String owner;
+    protected long leaseExpiry;
+
+    /**
+     * ETag the job document had when it was last read or written
+     */
+    @JsonIgnore
+    protected String etag;
+
+    public UsernameUpdateJob(String userId, String username) {
+        this.id = ID;
+        this.type = "UsernameUpdateJob";
+        this.userId = userId;
+        this.username = username;
+        this.timeStarted = Instant.now().getEpochSecond();
+        this.partitionsDiscovered = false;
+        this.remainingIdeaIds = new ArrayList<>();
+        this.remainingProjectIds = new ArrayList<>();
+        this.totalPartitions = 0;
+        this.completedPartitions = 0;
+        this.failedPartitions = 0;
+        this.complete = false;
+    }
+
+    public String getPartitionKey() {
+        return userId;
+    }
+}
@@ -8,4 +8,6 @@ public interface Votable {
     public long getTimeCreated();
 
     public int getUpvoteCount();
+
+    public void setUpvoteCount(int upvoteCount);
 }
@@ -0,0 +1,18 @@
+package com.herokuapp.projectideas.database.exception;
+
+public class InvalidCursorException extends DatabaseException {
+
+    private static final long serialVersionUID = 3859601385617425741L;
+
+    protected String cursor;
+
+    public InvalidCursorException(String cursor) {
+        super();
+        this.cursor = cursor;
+    }
+
+    @Override
+    public String toString() {
+        return "Cursor '" + cursor + "' is not a valid page cursor.";
+    }
+}
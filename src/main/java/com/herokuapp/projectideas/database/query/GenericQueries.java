@@ -11,6 +11,7 @@ import com.herokuapp.projectideas.database.document.user.User;
 import com.herokuapp.projectideas.database.document.user.UserJoinedProject;
 import com.herokuapp.projectideas.database.document.user.UserPostedIdea;
 import com.herokuapp.projectideas.database.document.user.UserSavedIdea;
+import com.herokuapp.projectideas.database.document.user.UsernameUpdateJob;
 import com.herokuapp.projectideas.database.document.vote.IdeaUpvote;
 import com.herokuapp.projectideas.database.document.vote.ProjectUpvote;
 import java.lang.reflect.Modifier;
@@ -82,7 +83,7 @@ public class GenericQueries {
             );
     }
 
-    private static String getPartitionKey(
+    public static String getPartitionKey(
         Class<? extends RootDocument> classType
     ) {
         if (
@@ -90,7 +91,8 @@ public class GenericQueries {
             Message.class.isAssignableFrom(classType) ||
             UserPostedIdea.class.isAssignableFrom(classType) ||
             UserSavedIdea.class.isAssignableFrom(classType) ||
-            UserJoinedProject.class.isAssignableFrom(classType)
+            UserJoinedProject.class.isAssignableFrom(classType) ||
+            UsernameUpdateJob.class.isAssignableFrom(classType)
         ) {
             return USER_CONTAINER_PARTITION_KEY;
         } else if (
@@ -113,7 +115,7 @@ public class GenericQueries {
         );
     }
 
-    private static <T> String[] getTypes(Class<T> classType) {
+    public static <T> String[] getTypes(Class<T> classType) {
         Set<Class<? extends T>> classes = reflections.getSubTypesOf(classType);
         classes.add(classType);
         return classes
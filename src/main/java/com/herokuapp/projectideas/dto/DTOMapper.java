@@ -17,6 +17,7 @@ import com.herokuapp.projectideas.database.document.post.Idea;
 import com.herokuapp.projectideas.database.document.project.Project;
 import com.herokuapp.projectideas.database.document.project.ProjectJoinRequest;
 import com.herokuapp.projectideas.database.document.user.User;
+import com.herokuapp.projectideas.database.document.user.UsernameUpdateJob;
 import com.herokuapp.projectideas.dto.message.ViewReceivedGroupMessageDTO;
 import com.herokuapp.projectideas.dto.message.ViewReceivedIndividualMessageDTO;
 import com.herokuapp.projectideas.dto.message.ViewReceivedMessageDTO;
@@ -37,9 +38,13 @@ import com.herokuapp.projectideas.dto.project.ViewProjectDTO;
 import com.herokuapp.projectideas.dto.project.ViewProjectJoinRequestDTO;
 import com.herokuapp.projectideas.dto.user.UpdateUserDTO;
 import com.herokuapp.projectideas.dto.user.ViewUserDTO;
+import com.herokuapp.projectideas.dto.user.ViewUsernameUpdateJobDTO;
+import com.herokuapp.projectideas.search.IndexedIdeaPreview;
+import com.herokuapp.projectideas.search.IndexedProjectPreview;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.mapstruct.Context;
-import org.mapstruct.IterableMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
@@ -56,6 +61,10 @@ public abstract class DTOMapper {
 
     public abstract ViewUserDTO viewUserDTO(User user);
 
+    public abstract ViewUsernameUpdateJobDTO viewUsernameUpdateJobDTO(
+        UsernameUpdateJob job
+    );
+
     @Mapping(
         target = "userHasUpvoted",
         source = "idea",
@@ -84,15 +93,89 @@ public abstract class DTOMapper {
         @Context Database database
     );
 
+    /**
+     * Maps a page of ideas, resolving which ideas the user has upvoted
+     * with a single query for the whole page.
+     */
+    public PreviewIdeaPageDTO previewIdeaPageDTO(
+        DocumentPage<Idea> documentPage,
+        String userId,
+        Database database
+    ) {
+        Set<String> upvotedIdeaIds = database.getIdeaIdsUpvotedByUser(
+            documentPage
+                .getDocuments()
+                .stream()
+                .map(idea -> idea.getIdeaId())
+                .collect(Collectors.toList()),
+            userId
+        );
+        List<PreviewIdeaDTO> ideaPreviews = documentPage
+            .getDocuments()
+            .stream()
+            .map(idea -> previewIdeaDTOFromUpvotedIds(idea, upvotedIdeaIds))
+            .collect(Collectors.toList());
+        return new PreviewIdeaPageDTO(
+            ideaPreviews,
+            documentPage.isLastPage(),
+            documentPage.getCursor(),
+            null,
+            null,
+            false
+        );
+    }
+
     @Mapping(
-        target = "ideaPreviews",
-        source = "documents",
-        qualifiedByName = "previewIdeaDTOList"
+        target = "userHasUpvoted",
+        source = "idea",
+        qualifiedByName = "ideaIsInUpvotedIds"
     )
-    public abstract PreviewIdeaPageDTO previewIdeaPageDTO(
-        DocumentPage<Idea> documentPage,
-        @Context String userId,
-        @Context Database database
+    @Named("previewIdeaDTOFromUpvotedIds")
+    protected abstract PreviewIdeaDTO previewIdeaDTOFromUpvotedIds(
+        Idea idea,
+        @Context Set<String> upvotedIdeaIds
+    );
+
+    /**
+     * Maps a page of ideas from the previews stored in the idea index,
+     * so that only the user's upvotes have to be read from the database.
+     */
+    public PreviewIdeaPageDTO previewIdeaPageDTOFromIndex(
+        List<IndexedIdeaPreview> previews,
+        boolean lastPage,
+        String userId,
+        Database database
+    ) {
+        Set<String> upvotedIdeaIds = database.getIdeaIdsUpvotedByUser(
+            previews
+                .stream()
+                .map(preview -> preview.getId())
+                .collect(Collectors.toList()),
+            userId
+        );
+        List<PreviewIdeaDTO> ideaPreviews = previews
+            .stream()
+            .map(preview -> previewIdeaDTOFromIndex(preview, upvotedIdeaIds))
+            .collect(Collectors.toList());
+        return new PreviewIdeaPageDTO(
+            ideaPreviews,
+            lastPage,
+            null,
+            null,
+            null,
+            false
+        );
+    }
+
+    @Mapping(
+        target = "userHasUpvoted",
+        source = "preview",
+        qualifiedByName = "indexedIdeaIsInUpvotedIds"
+    )
+    @Named("previewIdeaDTOFromIndex")
+    protected abstract PreviewIdeaDTO previewIdeaDTOFromIndex(
+        IndexedIdeaPreview preview,
+        @Context Set<String> upvotedIdeaIds
     );
 
     @Named("userHasUpvotedIdea")
@@ -104,6 +187,22 @@ public abstract class DTOMapper {
         return idea.userHasUpvoted(userId, database);
     }
 
+    @Named("indexedIdeaIsInUpvotedIds")
+    protected boolean indexedIdeaIsInUpvotedIds(
+        IndexedIdeaPreview preview,
+        @Context Set<String> upvotedIdeaIds
+    ) {
+        return upvotedIdeaIds.contains(preview.getId());
+    }
+
+    @Named("ideaIsInUpvotedIds")
+    protected boolean ideaIsInUpvotedIds(
+        Idea idea,
+        @Context Set<String> upvotedIdeaIds
+    ) {
+        return upvotedIdeaIds.contains(idea.getIdeaId());
+    }
+
     @Named("userHasSavedIdea")
     protected boolean userHasSavedIdea(
         Idea idea,
@@ -239,17 +338,152 @@ public abstract class DTOMapper {
         @Context Database database
     );
 
+    /**
+     * Maps a page of projects, resolving which projects the user has upvoted
+     * with a single query for the whole page.
+     */
+    public PreviewProjectPageDTO previewProjectPageDTO(
+        DocumentPage<Project> documentPage,
+        String userId,
+        Database database
+    ) {
+        Set<String> upvotedProjectIds = database.getProjectIdsUpvotedByUser(
+            documentPage
+                .getDocuments()
+                .stream()
+                .map(project -> project.getProjectId())
+                .collect(Collectors.toList()),
+            userId
+        );
+        List<PreviewProjectDTO> projectPreviews = documentPage
+            .getDocuments()
+            .stream()
+            .map(
+                project ->
+                    previewProjectDTOFromUpvotedIds(
+                        project,
+                        userId,
+                        upvotedProjectIds
+                    )
+            )
+            .collect(Collectors.toList());
+        return new PreviewProjectPageDTO(
+            projectPreviews,
+            documentPage.isLastPage(),
+            documentPage.getCursor(),
+            null,
+            null,
+            false
+        );
+    }
+
     @Mapping(
-        target = "projectPreviews",
-        source = "documents",
-        qualifiedByName = "previewProjectDTOList"
+        target = "userIsTeamMember",
+        source = "project",
+        qualifiedByName = "userIsTeamMember"
     )
-    public abstract PreviewProjectPageDTO previewProjectPageDTO(
-        DocumentPage<Project> documentPage,
+    @Mapping(
+        target = "userHasRequestedToJoin",
+        source = "project",
+        qualifiedByName = "userHasRequestedToJoin"
+    )
+    @Mapping(
+        target = "userHasUpvoted",
+        source = "project",
+        qualifiedByName = "projectIsInUpvotedIds"
+    )
+    @Named("previewProjectDTOFromUpvotedIds")
+    protected abstract PreviewProjectDTO previewProjectDTOFromUpvotedIds(
+        Project project,
         @Context String userId,
-        @Context Database database
+        @Context Set<String> upvotedProjectIds
     );
 
+    /**
+     * Maps a page of projects from the previews stored in the project
+     * index, so that only the user's upvotes have to be read from the
+     * database.
+     */
+    public PreviewProjectPageDTO previewProjectPageDTOFromIndex(
+        List<IndexedProjectPreview> previews,
+        boolean lastPage,
+        String userId,
+        Database database
+    ) {
+        Set<String> upvotedProjectIds = database.getProjectIdsUpvotedByUser(
+            previews
+                .stream()
+                .map(preview -> preview.getId())
+                .collect(Collectors.toList()),
+            userId
+        );
+        List<PreviewProjectDTO> projectPreviews = previews
+            .stream()
+            .map(
+                preview ->
+                    previewProjectDTOFromIndex(
+                        preview,
+                        userId,
+                        upvotedProjectIds
+                    )
+            )
+            .collect(Collectors.toList());
+        return new PreviewProjectPageDTO(
+            projectPreviews,
+            lastPage,
+            null,
+            null,
+            null,
+            false
+        );
+    }
+
+    @Mapping(
+        target = "userIsTeamMember",
+        source = "preview",
+        qualifiedByName = "indexedUserIsTeamMember"
+    )
+    @Mapping(
+        target = "userHasRequestedToJoin",
+        source = "preview",
+        qualifiedByName = "indexedUserHasRequestedToJoin"
+    )
+    @Mapping(
+        target = "userHasUpvoted",
+        source = "preview",
+        qualifiedByName = "indexedProjectIsInUpvotedIds"
+    )
+    @Named("previewProjectDTOFromIndex")
+    protected abstract PreviewProjectDTO previewProjectDTOFromIndex(
+        IndexedProjectPreview preview,
+        @Context String userId,
+        @Context Set<String> upvotedProjectIds
+    );
+
+    @Named("indexedUserIsTeamMember")
+    protected boolean indexedUserIsTeamMember(
+        IndexedProjectPreview preview,
+        @Context String userId
+    ) {
+        return preview.userIsTeamMember(userId);
+    }
+
+    @Named("indexedUserHasRequestedToJoin")
+    protected boolean indexedUserHasRequestedToJoin(
+        IndexedProjectPreview preview,
+        @Context String userId
+    ) {
+        return preview.userHasRequestedToJoin(userId);
+    }
+
+    @Named("indexedProjectIsInUpvotedIds")
+    protected boolean indexedProjectIsInUpvotedIds(
+        IndexedProjectPreview preview,
+        @Context Set<String> upvotedProjectIds
+    ) {
+        return upvotedProjectIds.contains(preview.getId());
+    }
+
     @Named("userIsTeamMember")
     protected boolean userIsTeamMember(
         Project project,
@@ -275,28 +509,18 @@ public abstract class DTOMapper {
         return project.userHasUpvoted(userId, database);
     }
 
+    @Named("projectIsInUpvotedIds")
+    protected boolean projectIsInUpvotedIds(
+        Project project,
+        @Context Set<String> upvotedProjectIds
+    ) {
+        return upvotedProjectIds.contains(project.getProjectId());
+    }
+
     protected abstract ViewProjectJoinRequestDTO viewProjectJoinRequest(
         ProjectJoinRequest projectJoinRequest
     );
 
-    // Document collection -> DTO collection
-
-    @IterableMapping(qualifiedByName = "previewIdeaDTO")
-    @Named("previewIdeaDTOList")
-    protected abstract List<PreviewIdeaDTO> previewIdeaDTOList(
-        List<Idea> ideas,
-        @Context String userId,
-        @Context Database database
-    );
-
-    @IterableMapping(qualifiedByName = "previewProjectDTO")
-    @Named("previewProjectDTOList")
-    protected abstract List<PreviewProjectDTO> previewProjectDTOList(
-        List<Project> projects,
-        @Context String userId,
-        @Context Database database
-    );
-
     // DTO updating existing document
 
     public abstract User updateUserFromDTO(
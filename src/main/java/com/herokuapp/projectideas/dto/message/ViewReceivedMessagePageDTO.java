@@ -11,4 +11,5 @@ public class ViewReceivedMessagePageDTO {
 
     private List<ViewReceivedMessageDTO> receivedMessages;
     private boolean isLastPage;
+    private String cursor;
 }
@@ -11,4 +11,5 @@ public class ViewSentMessagePageDTO {
 
     private List<ViewSentMessageDTO> sentMessages;
     private boolean isLastPage;
+    private String cursor;
 }
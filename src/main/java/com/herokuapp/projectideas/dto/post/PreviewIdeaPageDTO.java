@@ -1,5 +1,6 @@
 package com.herokuapp.projectideas.dto.post;
 
+import com.herokuapp.projectideas.dto.tag.TagCountDTO;
 import java.util.List;
 import lombok.*;
 
@@ -11,4 +12,18 @@ public class PreviewIdeaPageDTO {
 
     private List<PreviewIdeaDTO> ideaPreviews;
     private boolean isLastPage;
+    private String cursor;
+    /**
+     * Most common tags among the results of a search or listing, when
+     * requested
+     */
+    private List<TagCountDTO> tagCounts;
+    /**
+     * Number of results of a search or listing, or null for other pages
+     */
+    private Long totalHits;
+    /**
+     * Whether totalHits is exact, rather than a lower bound
+     */
+    private boolean totalHitsExact;
 }
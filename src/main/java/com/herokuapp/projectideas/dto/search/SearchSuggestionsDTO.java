@@ -0,0 +1,14 @@
+package com.herokuapp.projectideas.dto.search;
+
+import java.util.List;
+import lombok.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class SearchSuggestionsDTO {
+
+    private List<TitleSuggestionDTO> ideas;
+    private List<TitleSuggestionDTO> projects;
+}
@@ -0,0 +1,16 @@
+package com.herokuapp.projectideas.dto.search;
+
+import lombok.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class TitleSuggestionDTO {
+
+    private String id;
+    /**
+     * Title of an idea, or name of a project
+     */
+    private String title;
+}
@@ -0,0 +1,13 @@
+package com.herokuapp.projectideas.dto.tag;
+
+import lombok.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class TagCountDTO {
+
+    private String tag;
+    private int count;
+}
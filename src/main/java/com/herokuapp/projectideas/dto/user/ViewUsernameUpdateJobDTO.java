@@ -0,0 +1,17 @@
+package com.herokuapp.projectideas.dto.user;
+
+import lombok.*;
+
+@NoArgsConstructor
+@Getter
+@Setter
+public class ViewUsernameUpdateJobDTO {
+
+    private String username;
+    private long timeStarted;
+    private boolean partitionsDiscovered;
+    private int totalPartitions;
+    private int completedPartitions;
+    private int failedPartitions;
+    private boolean complete;
+}
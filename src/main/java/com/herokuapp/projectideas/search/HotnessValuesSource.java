@@ -0,0 +1,100 @@
+package com.herokuapp.projectideas.search;
+
+import java.io.IOException;
+import java.util.Objects;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.DoubleValues;
+import org.apache.lucene.search.DoubleValuesSource;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * Hotness of an idea or project, computed at query time from its raw
+ * upvote count and creation time doc values:
+ * log10(upvotes + 1) + (timeCreated - epoch) / gravity.
+ * Newer documents start out ahead, and every gravity seconds of age is
+ * worth a factor of ten in upvotes. Since nothing but the raw values is
+ * indexed, changing the gravity takes effect without reindexing.
+ */
+public class HotnessValuesSource extends DoubleValuesSource {
+
+    /**
+     * Offset subtracted from creation times, so that scores stay small
+     */
+    private static final long EPOCH = 1134028003;
+
+    private final double gravitySeconds;
+
+    public HotnessValuesSource(double gravitySeconds) {
+        this.gravitySeconds = gravitySeconds;
+    }
+
+    @Override
+    public DoubleValues getValues(LeafReaderContext ctx, DoubleValues scores)
+        throws IOException {
+        NumericDocValues upvoteCounts = DocValues.getNumeric(
+            ctx.reader(),
+            "upvoteCount"
+        );
+        NumericDocValues timesCreated = DocValues.getNumeric(
+            ctx.reader(),
+            "timeCreated"
+        );
+        return new DoubleValues() {
+            private double value;
+
+            @Override
+            public double doubleValue() {
+                return value;
+            }
+
+            @Override
+            public boolean advanceExact(int doc) throws IOException {
+                long upvoteCount = upvoteCounts.advanceExact(doc)
+                    ? upvoteCounts.longValue()
+                    : 0;
+                if (!timesCreated.advanceExact(doc)) {
+                    return false;
+                }
+                value =
+                    Math.log10(upvoteCount + 1) +
+                    (timesCreated.longValue() - EPOCH) / gravitySeconds;
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public boolean needsScores() {
+        return false;
+    }
+
+    @Override
+    public DoubleValuesSource rewrite(IndexSearcher reader) {
+        return this;
+    }
+
+    @Override
+    public boolean isCacheable(LeafReaderContext ctx) {
+        return DocValues.isCacheable(ctx, "upvoteCount", "timeCreated");
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(gravitySeconds);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return (
+            obj instanceof HotnessValuesSource &&
+            ((HotnessValuesSource) obj).gravitySeconds == gravitySeconds
+        );
+    }
+
+    @Override
+    public String toString() {
+        return "hotness(gravity=" + gravitySeconds + ")";
+    }
+}
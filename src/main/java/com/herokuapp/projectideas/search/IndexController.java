@@ -1,26 +1,56 @@
 package com.herokuapp.projectideas.search;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.herokuapp.projectideas.database.Database;
+import com.herokuapp.projectideas.database.document.RootDocument;
 import com.herokuapp.projectideas.database.document.post.Idea;
 import com.herokuapp.projectideas.database.document.project.Project;
 import com.herokuapp.projectideas.database.document.tag.Tag;
 import com.herokuapp.projectideas.database.document.vote.Votable;
 import java.io.IOException;
-import java.lang.Math;
-import java.util.ArrayList;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import lombok.NoArgsConstructor;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.FeatureField;
 import org.apache.lucene.document.Field;
-import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -36,6 +66,21 @@ public class IndexController {
     @Autowired
     private IndexWriter tagIndexWriter;
 
+    @Autowired
+    private SearcherManager ideaSearcherManager;
+
+    @Autowired
+    private SearcherManager projectSearcherManager;
+
+    @Autowired
+    private SearcherRefresher searcherRefresher;
+
+    @Autowired
+    private FacetsConfig facetsConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private Database database;
 
@@ -43,216 +88,771 @@ public class IndexController {
         IndexController.class
     );
 
+    /**
+     * Version of the layout of indexed documents. Indexes committed with
+     * a different version are rebuilt at startup.
+     */
+    static final String SCHEMA_VERSION = "10";
+
+    private static final String SCHEMA_VERSION_KEY = "schemaVersion";
+    private static final String WATERMARK_KEY = "watermark";
+    /**
+     * Documents modified up to this long before the watermark are
+     * reindexed when catching up, to allow for clock skew between this
+     * instance and Cosmos, and for index updates still in flight when
+     * the watermark was committed.
+     */
+    private static final long WATERMARK_MARGIN_SECONDS = 300;
+    /**
+     * Length of the content and description excerpts stored in previews,
+     * which is longer than any preview shows
+     */
+    private static final int PREVIEW_EXCERPT_LENGTH = 1000;
+
+    /**
+     * Idea titles and content keep term vectors, so that related ideas
+     * and projects can be found from an idea's terms without analyzing
+     * its text again
+     */
+    private static final FieldType TERM_VECTOR_TEXT_FIELD = new FieldType(
+        TextField.TYPE_NOT_STORED
+    );
+
+    static {
+        TERM_VECTOR_TEXT_FIELD.setStoreTermVectors(true);
+        TERM_VECTOR_TEXT_FIELD.freeze();
+    }
+
+    /**
+     * Full writes and deletes of ideas and projects that searches may not
+     * see yet. While a document has such a write pending, the indexed
+     * version visible to searches is out of date and cannot be used to
+     * decide whether only its scores changed.
+     */
+    private final PendingWrites pendingIdeaWrites = new PendingWrites();
+    private final PendingWrites pendingProjectWrites = new PendingWrites();
+
+    /**
+     * When the startup catch up began, before any index was caught up
+     */
+    private Instant catchUpStart;
+
+    private static class PendingWrites {
+
+        private final Map<String, Long> generations = new ConcurrentHashMap<>();
+        private volatile long clearedGeneration = -1;
+
+        private void record(String id, long generation) {
+            generations.merge(id, generation, Long::max);
+        }
+
+        private void recordCleared(long generation) {
+            clearedGeneration = generation;
+        }
+
+        private boolean isPending(String id, long searchingGeneration) {
+            return (
+                clearedGeneration > searchingGeneration ||
+                generations.getOrDefault(id, -1L) > searchingGeneration
+            );
+        }
+
+        private void removeVisible(long searchingGeneration) {
+            generations
+                .values()
+                .removeIf(generation -> generation <= searchingGeneration);
+        }
+    }
+
+    @FunctionalInterface
+    private interface CatchUp {
+        /**
+         * @return Keys of the documents read from the database
+         */
+        Set<String> run(long since, boolean reconcileDeletes)
+            throws IOException;
+    }
+
+    /**
+     * The indexes are kept on disk between restarts. At startup, each
+     * index is caught up with the documents modified since its commit
+     * watermark, and only rebuilt if it has none or its schema version
+     * is out of date.
+     */
     @PostConstruct
     private void init() {
-        List<Idea> ideaList = database.getAllIdeas();
+        catchUpStart = Instant.now();
+        initIndex("idea", ideaIndexWriter, this::catchUpIdeaIndex);
+        initIndex("project", projectIndexWriter, this::catchUpProjectIndex);
+        initIndex("tag", tagIndexWriter, this::catchUpTagIndex);
+    }
+
+    /**
+     * @return Time from which the change feeds have to be read so that no
+     * change is missed after the startup catch up
+     */
+    public Instant getChangeFeedStartTime() {
+        return catchUpStart.minusSeconds(WATERMARK_MARGIN_SECONDS);
+    }
+
+    private void initIndex(
+        String indexName,
+        IndexWriter indexWriter,
+        CatchUp catchUp
+    ) {
         try {
-            indexIdeas(ideaList);
+            Map<String, String> commitData = getCommitData(indexWriter);
+            if (
+                SCHEMA_VERSION.equals(commitData.get(SCHEMA_VERSION_KEY)) &&
+                commitData.containsKey(WATERMARK_KEY)
+            ) {
+                long since =
+                    Long.parseLong(commitData.get(WATERMARK_KEY)) -
+                    WATERMARK_MARGIN_SECONDS;
+                logger.info(
+                    "Catching up " + indexName + " index from " + since
+                );
+                long start = Instant.now().getEpochSecond();
+                catchUp.run(since, true);
+                commit(indexWriter, start);
+            } else {
+                rebuildIndex(indexName, indexWriter, catchUp);
+            }
         } catch (IOException e) {
-            logger.error("Failed to index ideas", e);
+            logger.error("Failed to initialize " + indexName + " index", e);
         }
+    }
 
-        List<Project> projectList = database.getAllPublicProjects();
+    /**
+     * Rebuilds every index from the database while it is being searched.
+     * Every document is rewritten in place, then the documents that were
+     * indexed before the rebuild but are no longer in the database are
+     * deleted, so searches never see a partial index.
+     */
+    public void rebuildAllIndexes() {
         try {
-            indexProjects(projectList);
+            rebuildIndexInPlace(
+                "idea",
+                ideaIndexWriter,
+                "id",
+                this::catchUpIdeaIndex
+            );
+            rebuildIndexInPlace(
+                "project",
+                projectIndexWriter,
+                "id",
+                this::catchUpProjectIndex
+            );
+            rebuildIndexInPlace(
+                "tag",
+                tagIndexWriter,
+                "key",
+                this::catchUpTagIndex
+            );
         } catch (IOException e) {
-            logger.error("Failed to index projects", e);
+            logger.error("Failed to rebuild indexes", e);
         }
+    }
 
-        List<Tag> tagList = database.getAllTags();
-        try {
-            indexTags(tagList);
-        } catch (IOException e) {
-            logger.error("Failed to index tags", e);
+    private void rebuildIndexInPlace(
+        String indexName,
+        IndexWriter indexWriter,
+        String keyField,
+        CatchUp catchUp
+    ) throws IOException {
+        logger.info("Rebuilding " + indexName + " index in place");
+        long start = Instant.now().getEpochSecond();
+        // Keys indexed before the catch up, so that documents the change
+        // feed indexes during it are kept
+        Set<String> staleKeys = getIndexedKeys(indexWriter, keyField);
+        staleKeys.removeAll(catchUp.run(0, false));
+        deleteDocuments(indexWriter, keyField, staleKeys);
+        commit(indexWriter, start);
+    }
+
+    /**
+     * Rebuilds an index from scratch. Only used at startup, before the
+     * index is searched, since the index is empty until it is caught up.
+     */
+    private void rebuildIndex(
+        String indexName,
+        IndexWriter indexWriter,
+        CatchUp catchUp
+    ) throws IOException {
+        logger.info("Rebuilding " + indexName + " index");
+        long start = Instant.now().getEpochSecond();
+        long generation = indexWriter.deleteAll();
+        if (indexWriter == ideaIndexWriter) {
+            pendingIdeaWrites.recordCleared(generation);
+        } else if (indexWriter == projectIndexWriter) {
+            pendingProjectWrites.recordCleared(generation);
         }
+        catchUp.run(0, false);
+        commit(indexWriter, start);
     }
 
-    private void indexIdeas(List<Idea> ideaList) throws IOException {
-        List<Document> docs = new ArrayList<Document>();
-        for (Idea idea : ideaList) {
-            Document doc = getIdeaDoc(idea);
-            docs.add(doc);
+    private Set<String> catchUpIdeaIndex(long since, boolean reconcileDeletes)
+        throws IOException {
+        Set<String> ids = new HashSet<>();
+        for (Idea idea : database.getIdeasModifiedSince(since)) {
+            writeIdea(idea);
+            ids.add(idea.getId());
+        }
+        if (reconcileDeletes) {
+            deleteDocumentsNotIn(
+                ideaIndexWriter,
+                "id",
+                new HashSet<>(database.getAllIdeaIds())
+            );
         }
-        ideaIndexWriter.addDocuments(docs);
-        ideaIndexWriter.commit();
+        return ids;
     }
 
-    private void indexProjects(List<Project> projectList) throws IOException {
-        List<Document> docs = new ArrayList<Document>();
-        for (Project project : projectList) {
-            Document doc = getProjectDoc(project);
-            docs.add(doc);
+    private Set<String> catchUpProjectIndex(
+        long since,
+        boolean reconcileDeletes
+    ) throws IOException {
+        Set<String> ids = new HashSet<>();
+        for (Project project : database.getProjectsModifiedSince(since)) {
+            writeProject(project);
+            ids.add(project.getId());
         }
-        projectIndexWriter.addDocuments(docs);
-        projectIndexWriter.commit();
+        // Projects are deleted from the database rather than flagged
+        if (reconcileDeletes) {
+            deleteDocumentsNotIn(
+                projectIndexWriter,
+                "id",
+                new HashSet<>(database.getAllPublicProjectIds())
+            );
+        }
+        return ids;
     }
 
-    private void indexTags(List<Tag> tagList) throws IOException {
-        List<Document> docs = new ArrayList<Document>();
-        for (Tag tag : tagList) {
-            Document doc = getTagDoc(tag);
-            docs.add(doc);
+    private Set<String> catchUpTagIndex(long since, boolean reconcileDeletes)
+        throws IOException {
+        Set<String> keys = new HashSet<>();
+        for (Tag tag : database.getTagsModifiedSince(since)) {
+            writeTag(tag);
+            keys.add(getTagKey(tag));
         }
-        tagIndexWriter.addDocuments(docs);
-        tagIndexWriter.commit();
+        if (reconcileDeletes) {
+            deleteDocumentsNotIn(
+                tagIndexWriter,
+                "key",
+                database
+                    .getAllTags()
+                    .stream()
+                    .map(tag -> getTagKey(tag))
+                    .collect(Collectors.toSet())
+            );
+        }
+        return keys;
     }
 
-    public void indexIdea(Idea idea) throws IOException {
-        Document doc = getIdeaDoc(idea);
-        ideaIndexWriter.addDocument(doc);
-        ideaIndexWriter.commit();
+    /**
+     * Deletes the indexed documents whose key is not in the given set,
+     * which removes documents deleted from the database while this
+     * instance was not running. Keys are read from the key field's doc
+     * values.
+     */
+    private void deleteDocumentsNotIn(
+        IndexWriter indexWriter,
+        String keyField,
+        Set<String> keys
+    ) throws IOException {
+        Set<String> deletedKeys = getIndexedKeys(indexWriter, keyField);
+        deletedKeys.removeAll(keys);
+        deleteDocuments(indexWriter, keyField, deletedKeys);
     }
 
-    public void indexProject(Project project) throws IOException {
-        Document doc = getProjectDoc(project);
-        projectIndexWriter.addDocument(doc);
-        projectIndexWriter.commit();
+    /**
+     * @return Keys of the documents in the index, including changes not
+     * yet visible to searches, read from the key field's doc values
+     */
+    private Set<String> getIndexedKeys(
+        IndexWriter indexWriter,
+        String keyField
+    ) throws IOException {
+        Set<String> indexedKeys = new HashSet<>();
+        try (DirectoryReader reader = DirectoryReader.open(indexWriter)) {
+            for (LeafReaderContext leaf : reader.leaves()) {
+                Bits liveDocs = leaf.reader().getLiveDocs();
+                SortedDocValues keyValues = DocValues.getSorted(
+                    leaf.reader(),
+                    keyField
+                );
+                for (
+                    int doc = keyValues.nextDoc();
+                    doc != DocIdSetIterator.NO_MORE_DOCS;
+                    doc = keyValues.nextDoc()
+                ) {
+                    if (liveDocs != null && !liveDocs.get(doc)) {
+                        continue;
+                    }
+                    indexedKeys.add(
+                        keyValues.lookupOrd(keyValues.ordValue()).utf8ToString()
+                    );
+                }
+            }
+        }
+        return indexedKeys;
     }
 
-    private void indexTag(Tag tag) throws IOException {
-        Document doc = getTagDoc(tag);
-        tagIndexWriter.addDocument(doc);
-        tagIndexWriter.commit();
+    private void deleteDocuments(
+        IndexWriter indexWriter,
+        String keyField,
+        Set<String> deletedKeys
+    ) throws IOException {
+        for (String key : deletedKeys) {
+            indexWriter.deleteDocuments(new Term(keyField, key));
+        }
+        if (!deletedKeys.isEmpty()) {
+            logger.info(
+                "Removed " + deletedKeys.size() + " deleted documents from index"
+            );
+        }
     }
 
-    private Document getIdeaDoc(Idea idea) {
-        Document doc = new Document();
-        doc.add(new TextField("title", idea.getTitle(), Field.Store.YES));
-        doc.add(new TextField("content", idea.getContent(), Field.Store.YES));
-        doc.add(new TextField("id", idea.getId(), Field.Store.YES));
-        doc.add(
-            new SortedNumericDocValuesField(
-                "recency",
-                NumericUtils.floatToSortableInt(getRecencyScore(idea))
-            )
+    private Map<String, String> getCommitData(IndexWriter indexWriter) {
+        Map<String, String> commitData = new HashMap<>();
+        Iterable<Map.Entry<String, String>> liveCommitData = indexWriter.getLiveCommitData();
+        if (liveCommitData != null) {
+            for (Map.Entry<String, String> entry : liveCommitData) {
+                commitData.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return commitData;
+    }
+
+    /**
+     * Commits the index, recording the current time as the watermark
+     * that the next startup catches up from.
+     */
+    private void commit(IndexWriter indexWriter) throws IOException {
+        commit(indexWriter, Instant.now().getEpochSecond());
+    }
+
+    private void commit(IndexWriter indexWriter, long watermark)
+        throws IOException {
+        indexWriter.setLiveCommitData(
+            Map
+                .of(
+                    SCHEMA_VERSION_KEY,
+                    SCHEMA_VERSION,
+                    WATERMARK_KEY,
+                    Long.toString(watermark)
+                )
+                .entrySet()
+        );
+        indexWriter.commit();
+    }
+
+    /**
+     * Applies documents written to the database to the indexes. Every
+     * document is written in full, so applying the same change twice,
+     * or an older change after a newer one has been applied, is only
+     * corrected by the next change.
+     * Changes become visible to searches within the configured
+     * staleness, and durable at the next scheduled commit.
+     * @return Generations to pass to waitForGenerations for
+     * read-your-writes
+     */
+    public IndexGenerations applyChanges(
+        List<? extends RootDocument> documents
+    ) throws IOException {
+        long ideaGeneration = -1;
+        long projectGeneration = -1;
+        long tagGeneration = -1;
+        for (RootDocument document : documents) {
+            if (document instanceof Idea) {
+                ideaGeneration = writeIdea((Idea) document);
+            } else if (document instanceof Project) {
+                projectGeneration = writeProject((Project) document);
+            } else if (document instanceof Tag) {
+                tagGeneration = writeTag((Tag) document);
+            }
+        }
+        return new IndexGenerations(
+            ideaGeneration,
+            projectGeneration,
+            tagGeneration
         );
+    }
+
+    /**
+     * Waits until searches see every change up to the given generations.
+     * @return Whether the generations became visible within the time limit
+     */
+    public boolean waitForGenerations(
+        IndexGenerations generations,
+        int maxWaitMillis
+    ) throws InterruptedException {
+        return searcherRefresher.waitForGenerations(generations, maxWaitMillis);
+    }
+
+    /**
+     * Commits the changes made since the last commit. Until then, changes
+     * are searchable but would be lost if the process died, in which case
+     * they are recovered by catching up at the next startup.
+     */
+    @Scheduled(fixedDelayString = "${projectideas.index.commitIntervalMs:60000}")
+    @PreDestroy
+    public void commitChanges() {
+        pendingIdeaWrites.removeVisible(
+            searcherRefresher.getIdeaSearchingGeneration()
+        );
+        pendingProjectWrites.removeVisible(
+            searcherRefresher.getProjectSearchingGeneration()
+        );
+        for (IndexWriter indexWriter : List.of(
+            ideaIndexWriter,
+            projectIndexWriter,
+            tagIndexWriter
+        )) {
+            try {
+                if (indexWriter.hasUncommittedChanges()) {
+                    commit(indexWriter);
+                }
+            } catch (IOException e) {
+                logger.error("Failed to commit index", e);
+            }
+        }
+    }
+
+    /**
+     * Writes an idea to the index. If only its upvotes have changed since
+     * it was indexed, which is the case for most changes, only its upvote
+     * count doc value is updated, rather than reanalyzing its text.
+     */
+    private long writeIdea(Idea idea) throws IOException {
+        Term idTerm = getIdTerm(idea.getId());
+        long generation;
+        if (idea.isDeleted()) {
+            generation = ideaIndexWriter.deleteDocuments(idTerm);
+        } else {
+            String preview = getIdeaPreview(idea);
+            long fingerprint = getFingerprint(
+                preview,
+                idea.getContent(),
+                String.join("\n", getTags(idea.getTags()))
+            );
+            if (
+                isIndexedWithFingerprint(
+                    idea.getId(),
+                    fingerprint,
+                    ideaSearcherManager,
+                    pendingIdeaWrites,
+                    searcherRefresher.getIdeaSearchingGeneration()
+                )
+            ) {
+                return ideaIndexWriter.updateDocValues(
+                    idTerm,
+                    getScoreFields(idea)
+                );
+            }
+            generation =
+                ideaIndexWriter.updateDocument(
+                    idTerm,
+                    getIdeaDoc(idea, preview, fingerprint)
+                );
+        }
+        pendingIdeaWrites.record(idea.getId(), generation);
+        return generation;
+    }
+
+    /**
+     * Writes a project to the index, updating only its score doc values
+     * if only its upvotes have changed since it was indexed.
+     */
+    private long writeProject(Project project) throws IOException {
+        Term idTerm = getIdTerm(project.getId());
+        long generation;
+        if (project.isPublicProject()) {
+            String preview = getProjectPreview(project);
+            long fingerprint = getFingerprint(
+                preview,
+                project.getDescription(),
+                String.join("\n", getTags(project.getTags()))
+            );
+            if (
+                isIndexedWithFingerprint(
+                    project.getId(),
+                    fingerprint,
+                    projectSearcherManager,
+                    pendingProjectWrites,
+                    searcherRefresher.getProjectSearchingGeneration()
+                )
+            ) {
+                return projectIndexWriter.updateDocValues(
+                    idTerm,
+                    getScoreFields(project)
+                );
+            }
+            generation =
+                projectIndexWriter.updateDocument(
+                    idTerm,
+                    getProjectDoc(project, preview, fingerprint)
+                );
+        } else {
+            generation = projectIndexWriter.deleteDocuments(idTerm);
+        }
+        pendingProjectWrites.record(project.getId(), generation);
+        return generation;
+    }
+
+    /**
+     * Whether the document is indexed with the given fingerprint, meaning
+     * that nothing but its scores can have changed. The searchable
+     * version of the document is only trusted if no full write or delete
+     * of it is pending.
+     */
+    private boolean isIndexedWithFingerprint(
+        String id,
+        long fingerprint,
+        SearcherManager searcherManager,
+        PendingWrites pendingWrites,
+        long searchingGeneration
+    ) throws IOException {
+        if (pendingWrites.isPending(id, searchingGeneration)) {
+            return false;
+        }
+        IndexSearcher indexSearcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = indexSearcher.search(
+                new TermQuery(getIdTerm(id)),
+                1
+            );
+            if (topDocs.scoreDocs.length == 0) {
+                return false;
+            }
+            int doc = topDocs.scoreDocs[0].doc;
+            List<LeafReaderContext> leaves = indexSearcher
+                .getIndexReader()
+                .leaves();
+            LeafReaderContext leaf = leaves.get(
+                ReaderUtil.subIndex(doc, leaves)
+            );
+            NumericDocValues fingerprints = DocValues.getNumeric(
+                leaf.reader(),
+                "fingerprint"
+            );
+            return (
+                fingerprints.advanceExact(doc - leaf.docBase) &&
+                fingerprints.longValue() == fingerprint
+            );
+        } finally {
+            searcherManager.release(indexSearcher);
+        }
+    }
+
+    /**
+     * Hash of the indexed text and stored preview of a document. Documents
+     * whose text and preview are unchanged keep the same fingerprint.
+     */
+    private long getFingerprint(String... fields) {
+        int high = 0;
+        int low = 1;
+        for (String field : fields) {
+            BytesRef bytes = new BytesRef(field == null ? "" : field);
+            high = StringHelper.murmurhash3_x86_32(bytes, high);
+            low = StringHelper.murmurhash3_x86_32(bytes, low);
+        }
+        return ((long) high << 32) | (low & 0xffffffffL);
+    }
+
+    private long writeTag(Tag tag) throws IOException {
+        return tagIndexWriter.updateDocument(getTagKeyTerm(tag), getTagDoc(tag));
+    }
+
+    public void deleteTag(Tag tag) throws IOException {
+        tagIndexWriter.deleteDocuments(getTagKeyTerm(tag));
+    }
+
+    private Document getIdeaDoc(Idea idea, String preview, long fingerprint)
+        throws IOException {
+        Document doc = new Document();
+        doc.add(new Field("title", idea.getTitle(), TERM_VECTOR_TEXT_FIELD));
         doc.add(
-            new SortedNumericDocValuesField(
-                "upvotes",
-                NumericUtils.floatToSortableInt(getUpvoteScore(idea))
-            )
+            new Field("content", idea.getContent(), TERM_VECTOR_TEXT_FIELD)
         );
+        doc.add(new TextField("titlePrefix", idea.getTitle(), Field.Store.NO));
+        doc.add(new StoredField("preview", preview));
+        addId(doc, idea.getId());
+        addTags(doc, idea.getTags());
+        doc.add(new NumericDocValuesField("fingerprint", fingerprint));
         doc.add(
-            new SortedNumericDocValuesField(
-                "hotness",
-                NumericUtils.floatToSortableInt(getHotnessScore(idea))
-            )
+            new NumericDocValuesField("timeCreated", idea.getTimeCreated())
         );
-        return doc;
+        for (Field field : getScoreFields(idea)) {
+            doc.add(field);
+        }
+        return facetsConfig.build(doc);
     }
 
-    private Document getProjectDoc(Project project) {
+    private Document getProjectDoc(
+        Project project,
+        String preview,
+        long fingerprint
+    ) throws IOException {
         Document doc = new Document();
-        doc.add(new TextField("name", project.getName(), Field.Store.YES));
+        doc.add(new TextField("name", project.getName(), Field.Store.NO));
         doc.add(
             new TextField(
                 "description",
                 project.getDescription(),
-                Field.Store.YES
+                Field.Store.NO
             )
         );
-        doc.add(new TextField("id", project.getId(), Field.Store.YES));
         doc.add(
-            new SortedNumericDocValuesField(
-                "recency",
-                NumericUtils.floatToSortableInt(getRecencyScore(project))
-            )
+            new TextField("titlePrefix", project.getName(), Field.Store.NO)
         );
+        doc.add(new StoredField("preview", preview));
+        addId(doc, project.getId());
+        addTags(doc, project.getTags());
+        doc.add(new NumericDocValuesField("fingerprint", fingerprint));
         doc.add(
-            new SortedNumericDocValuesField(
-                "upvotes",
-                NumericUtils.floatToSortableInt(getUpvoteScore(project))
-            )
+            new NumericDocValuesField("timeCreated", project.getTimeCreated())
         );
-        doc.add(
-            new SortedNumericDocValuesField(
-                "hotness",
-                NumericUtils.floatToSortableInt(getHotnessScore(project))
-            )
+        for (Field field : getScoreFields(project)) {
+            doc.add(field);
+        }
+        return facetsConfig.build(doc);
+    }
+
+    /**
+     * Previews are stored with each document, so that pages of search
+     * results can be built from the index alone.
+     */
+    private String getIdeaPreview(Idea idea) throws IOException {
+        IndexedIdeaPreview preview = new IndexedIdeaPreview();
+        preview.setVersion(IndexedIdeaPreview.VERSION);
+        preview.setId(idea.getId());
+        preview.setTitle(idea.getTitle());
+        preview.setContent(getExcerpt(idea.getContent()));
+        preview.setAuthorUsername(idea.getAuthorUsername());
+        preview.setTimeCreated(idea.getTimeCreated());
+        preview.setTimeLastEdited(idea.getTimeLastEdited());
+        return objectMapper.writeValueAsString(preview);
+    }
+
+    private String getProjectPreview(Project project) throws IOException {
+        IndexedProjectPreview preview = new IndexedProjectPreview();
+        preview.setVersion(IndexedProjectPreview.VERSION);
+        preview.setId(project.getId());
+        preview.setName(project.getName());
+        preview.setDescription(getExcerpt(project.getDescription()));
+        preview.setLookingForMembers(project.isLookingForMembers());
+        preview.setTeamMemberIds(
+            project
+                .getTeamMembers()
+                .stream()
+                .map(member -> member.getUserId())
+                .collect(Collectors.toList())
         );
-        return doc;
+        preview.setRequestingUserIds(
+            project
+                .getUsersRequestingToJoin()
+                .stream()
+                .map(request -> request.getUserId())
+                .collect(Collectors.toList())
+        );
+        return objectMapper.writeValueAsString(preview);
+    }
+
+    private String getExcerpt(String text) {
+        if (text == null || text.length() <= PREVIEW_EXCERPT_LENGTH) {
+            return text;
+        }
+        int end = PREVIEW_EXCERPT_LENGTH;
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            // Do not split a surrogate pair
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    /**
+     * Doc values that change when a document is upvoted. These are
+     * numeric doc values so that they can be updated in place. Scores
+     * derived from them, like hotness, are computed at query time.
+     */
+    private Field[] getScoreFields(Votable votable) {
+        return new Field[] {
+            new NumericDocValuesField("upvoteCount", votable.getUpvoteCount()),
+        };
     }
 
     private Document getTagDoc(Tag tag) {
         Document doc = new Document();
         doc.add(new TextField("name", tag.getId(), Field.Store.YES));
         doc.add(new FeatureField("features", "usages", tag.getUsages()));
+        // Read to weight tag suggestions
+        doc.add(new NumericDocValuesField("usages", tag.getUsages()));
         doc.add(
             new TextField("type", tag.getType().toString(), Field.Store.YES)
         );
+        String key = getTagKey(tag);
+        doc.add(new StringField("key", key, Field.Store.NO));
+        doc.add(new SortedDocValuesField("key", new BytesRef(key)));
         return doc;
     }
 
-    private float getUpvoteScore(Votable votable) {
-        return (float) Math.log10(votable.getUpvoteCount() + 1);
-    }
-
-    private float getRecencyScore(Votable votable) {
-        return votable.getTimeCreated() - 1134028003;
-    }
-
-    private float getHotnessScore(Votable votable) {
-        float upvoteScore = getUpvoteScore(votable);
-        float recencyScore = getRecencyScore(votable);
-        return upvoteScore + (recencyScore / 45000);
-    }
-
-    public void deleteIdea(String ideaId) throws IOException {
-        ideaIndexWriter.deleteDocuments(SearchController.getIdQuery(ideaId));
-        ideaIndexWriter.commit();
+    /**
+     * Ids are indexed unanalyzed, so that documents can be updated and
+     * deleted by id, and kept in doc values, so that searches can read
+     * the ids of hits without loading stored fields.
+     */
+    private void addId(Document doc, String id) {
+        doc.add(new StringField("id", id, Field.Store.NO));
+        doc.add(new SortedDocValuesField("id", new BytesRef(id)));
     }
 
-    public void deleteProject(String projectId) throws IOException {
-        projectIndexWriter.deleteDocuments(
-            SearchController.getIdQuery(projectId)
-        );
-        projectIndexWriter.commit();
+    /**
+     * Tags are indexed unanalyzed, to filter listings by exact tag, and
+     * kept in doc values. They are also indexed as a facet, which is
+     * turned into doc values when the document is built with the facets
+     * config, so that results can be counted by tag.
+     */
+    private void addTags(Document doc, List<String> tags) {
+        for (String tag : getTags(tags)) {
+            doc.add(new StringField("tag", tag, Field.Store.NO));
+            doc.add(new SortedSetDocValuesField("tag", new BytesRef(tag)));
+            doc.add(new SortedSetDocValuesFacetField("tag", tag));
+        }
     }
 
-    public void tryUpdateIdea(Idea newIdea) {
-        tryDeleteIdea(newIdea.getId());
-        tryIndexIdea(newIdea);
+    private List<String> getTags(List<String> tags) {
+        return tags == null ? List.of() : tags;
     }
 
-    public void tryUpdateProject(Project newProject) {
-        tryDeleteProject(newProject.getId());
-        if (newProject.isPublicProject()) {
-            tryIndexProject(newProject);
-        }
+    private Term getIdTerm(String id) {
+        return new Term("id", id);
     }
 
-    public void tryIndexIdea(Idea idea) {
-        try {
-            indexIdea(idea);
-        } catch (Exception e) {
-            logger.error("Failed to index idea " + idea.getIdeaId(), e);
-        }
+    /**
+     * Tag names are only unique within a tag type, so tags are keyed by
+     * both.
+     */
+    private String getTagKey(Tag tag) {
+        return tag.getType() + "/" + tag.getId();
     }
 
-    public void tryIndexProject(Project project) {
-        try {
-            indexProject(project);
-        } catch (Exception e) {
-            logger.error(
-                "Failed to index project " + project.getProjectId(),
-                e
-            );
-        }
+    private Term getTagKeyTerm(Tag tag) {
+        return new Term("key", getTagKey(tag));
     }
 
-    public void tryIndexTag(Tag tag) {
-        try {
-            indexTag(tag);
-        } catch (Exception e) {
-            logger.error("Failed to index tag " + tag.getId(), e);
-        }
+    public void deleteProject(String projectId) throws IOException {
+        pendingProjectWrites.record(
+            projectId,
+            projectIndexWriter.deleteDocuments(getIdTerm(projectId))
+        );
     }
 
-    public void tryDeleteIdea(String ideaId) {
+    public void tryDeleteTag(Tag tag) {
         try {
-            deleteIdea(ideaId);
+            deleteTag(tag);
         } catch (Exception e) {
-            logger.error("Failed to delete idea " + ideaId + " from index", e);
+            logger.error("Failed to delete tag " + tag.getId() + " from index", e);
         }
     }
 
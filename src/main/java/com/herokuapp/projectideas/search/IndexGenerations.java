@@ -0,0 +1,17 @@
+package com.herokuapp.projectideas.search;
+
+import lombok.*;
+
+/**
+ * Index writer sequence numbers after a set of changes, for waiting
+ * until the changes are visible to searches. A negative generation
+ * means the corresponding index was not changed.
+ */
+@AllArgsConstructor
+@Getter
+public class IndexGenerations {
+
+    private long ideaGeneration;
+    private long projectGeneration;
+    private long tagGeneration;
+}
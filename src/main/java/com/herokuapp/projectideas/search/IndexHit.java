@@ -0,0 +1,19 @@
+package com.herokuapp.projectideas.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Fields of an idea or project search result read from the index
+ */
+@AllArgsConstructor
+@Getter
+class IndexHit {
+
+    private final String id;
+    private final int upvoteCount;
+    /**
+     * Stored preview of the document, or null if it has none
+     */
+    private final String preview;
+}
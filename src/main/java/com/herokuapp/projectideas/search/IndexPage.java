@@ -0,0 +1,40 @@
+package com.herokuapp.projectideas.search;
+
+import com.herokuapp.projectideas.database.document.DocumentPage;
+import com.herokuapp.projectideas.dto.tag.TagCountDTO;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One page of search results read from an index
+ */
+@AllArgsConstructor
+@Getter
+class IndexPage {
+
+    private final List<IndexHit> hits;
+    private final boolean lastPage;
+    /**
+     * Most common tags among all results, or null if tag counts were
+     * not requested
+     */
+    private final List<TagCountDTO> tagCounts;
+    /**
+     * Cursor to the following page, or null if this is the last page
+     */
+    private final String nextCursor;
+    private final long totalHits;
+    /**
+     * Whether the total is exact, rather than a lower bound
+     */
+    private final boolean totalHitsExact;
+
+    public DocumentPage<String> getIdPage() {
+        return new DocumentPage<>(
+            hits.stream().map(hit -> hit.getId()).collect(Collectors.toList()),
+            lastPage
+        );
+    }
+}
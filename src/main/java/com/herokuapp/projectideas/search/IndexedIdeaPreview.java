@@ -0,0 +1,35 @@
+package com.herokuapp.projectideas.search;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+/**
+ * Fields of an idea stored in the idea index to build its preview
+ * without reading it from the database. The upvote count is not stored,
+ * but read from the upvote count doc value, which is updated in place.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class IndexedIdeaPreview {
+
+    /**
+     * Version of the stored preview layout. Pages with previews stored
+     * with a different version are read from the database instead.
+     */
+    public static final int VERSION = 1;
+
+    private int version;
+    private String id;
+    private String title;
+    /**
+     * Beginning of the idea's content, long enough for any preview
+     */
+    private String content;
+    private String authorUsername;
+    private long timeCreated;
+    private long timeLastEdited;
+
+    @JsonIgnore
+    private int upvoteCount;
+}
@@ -0,0 +1,45 @@
+package com.herokuapp.projectideas.search;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.List;
+import lombok.*;
+
+/**
+ * Fields of a project stored in the project index to build its preview
+ * without reading it from the database. The upvote count is not stored,
+ * but read from the upvote count doc value, which is updated in place.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class IndexedProjectPreview {
+
+    /**
+     * Version of the stored preview layout. Pages with previews stored
+     * with a different version are read from the database instead.
+     */
+    public static final int VERSION = 1;
+
+    private int version;
+    private String id;
+    private String name;
+    /**
+     * Beginning of the project's description, long enough for any
+     * preview
+     */
+    private String description;
+    private boolean lookingForMembers;
+    private List<String> teamMemberIds;
+    private List<String> requestingUserIds;
+
+    @JsonIgnore
+    private int upvoteCount;
+
+    public boolean userIsTeamMember(String userId) {
+        return teamMemberIds.contains(userId);
+    }
+
+    public boolean userHasRequestedToJoin(String userId) {
+        return requestingUserIds.contains(userId);
+    }
+}
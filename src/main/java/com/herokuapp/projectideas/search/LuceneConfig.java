@@ -4,8 +4,11 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.custom.CustomAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.facet.FacetsConfig;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.search.SearcherFactory;
@@ -23,6 +26,12 @@ public class LuceneConfig {
         "lucene/projectIndex/";
     private static final String TAG_LUCENE_INDEX_PATH = "lucene/tagIndex/";
 
+    /**
+     * Longest word prefix indexed for title suggestions. Longer prefixes
+     * are truncated when searching.
+     */
+    static final int MAX_TITLE_PREFIX_LENGTH = 20;
+
     @Bean
     public Directory ideaDirectory() throws IOException {
         Path path = Paths.get(IDEA_LUCENE_INDEX_PATH);
@@ -66,18 +75,55 @@ public class LuceneConfig {
             .build();
     }
 
+    /**
+     * Analyzer of documents added to the idea and project indexes. Title
+     * prefix fields are split into the prefixes of each word, so that
+     * title suggestions are single term lookups.
+     */
+    private static Analyzer getIndexAnalyzer(Analyzer analyzer)
+        throws IOException {
+        Analyzer titlePrefixAnalyzer = CustomAnalyzer
+            .builder()
+            .withTokenizer("whitespace")
+            .addTokenFilter("lowercase")
+            .addTokenFilter(
+                "edgeNGram",
+                "minGramSize",
+                "1",
+                "maxGramSize",
+                String.valueOf(MAX_TITLE_PREFIX_LENGTH),
+                "preserveOriginal",
+                "true"
+            )
+            .build();
+        return new PerFieldAnalyzerWrapper(
+            analyzer,
+            Map.of("titlePrefix", titlePrefixAnalyzer)
+        );
+    }
+
+    /**
+     * Tags of ideas and projects are counted as a multi-valued facet
+     */
+    @Bean
+    public FacetsConfig facetsConfig() {
+        FacetsConfig facetsConfig = new FacetsConfig();
+        facetsConfig.setMultiValued("tag", true);
+        return facetsConfig;
+    }
+
     @Bean
     public IndexWriter ideaIndexWriter(
         Directory ideaDirectory,
         Analyzer analyzer
     ) throws IOException {
-        IndexWriterConfig indexWriterConfig = new IndexWriterConfig(analyzer);
+        IndexWriterConfig indexWriterConfig = new IndexWriterConfig(
+            getIndexAnalyzer(analyzer)
+        );
         IndexWriter indexWriter = new IndexWriter(
             ideaDirectory,
             indexWriterConfig
         );
-        indexWriter.deleteAll();
-        indexWriter.commit();
         return indexWriter;
     }
 
@@ -86,13 +132,13 @@ public class LuceneConfig {
         Directory projectDirectory,
         Analyzer analyzer
     ) throws IOException {
-        IndexWriterConfig indexWriterConfig = new IndexWriterConfig(analyzer);
+        IndexWriterConfig indexWriterConfig = new IndexWriterConfig(
+            getIndexAnalyzer(analyzer)
+        );
         IndexWriter indexWriter = new IndexWriter(
             projectDirectory,
             indexWriterConfig
         );
-        indexWriter.deleteAll();
-        indexWriter.commit();
         return indexWriter;
     }
 
@@ -106,8 +152,6 @@ public class LuceneConfig {
             tagDirectory,
             indexWriterConfig
         );
-        indexWriter.deleteAll();
-        indexWriter.commit();
         return indexWriter;
     }
 
@@ -116,13 +160,7 @@ public class LuceneConfig {
         Directory ideaDirectory,
         IndexWriter ideaIndexWriter
     ) throws IOException {
-        SearcherManager searcherManager = new SearcherManager(
-            ideaIndexWriter,
-            false,
-            false,
-            new SearcherFactory()
-        );
-        return searcherManager;
+        return createSearcherManager(ideaIndexWriter);
     }
 
     @Bean
@@ -130,13 +168,7 @@ public class LuceneConfig {
         Directory projectDirectory,
         IndexWriter projectIndexWriter
     ) throws IOException {
-        SearcherManager searcherManager = new SearcherManager(
-            projectIndexWriter,
-            false,
-            false,
-            new SearcherFactory()
-        );
-        return searcherManager;
+        return createSearcherManager(projectIndexWriter);
     }
 
     @Bean
@@ -144,12 +176,19 @@ public class LuceneConfig {
         Directory tagDirectory,
         IndexWriter tagIndexWriter
     ) throws IOException {
-        SearcherManager searcherManager = new SearcherManager(
-            tagIndexWriter,
-            false,
+        return createSearcherManager(tagIndexWriter);
+    }
+
+    private static SearcherManager createSearcherManager(
+        IndexWriter indexWriter
+    ) throws IOException {
+        return new SearcherManager(
+            indexWriter,
+            // Apply deletes, since updates are not committed before
+            // the searcher is refreshed
+            true,
             false,
             new SearcherFactory()
         );
-        return searcherManager;
     }
 }
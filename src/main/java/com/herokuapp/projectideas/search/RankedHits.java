@@ -0,0 +1,40 @@
+package com.herokuapp.projectideas.search;
+
+import com.herokuapp.projectideas.dto.tag.TagCountDTO;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.lucene.search.ScoreDoc;
+
+/**
+ * Leading hits of a search or listing, in rank order. The doc ids are
+ * only valid for the searcher the hits were collected with.
+ */
+@AllArgsConstructor
+@Getter
+class RankedHits {
+
+    private final ScoreDoc[] scoreDocs;
+    /**
+     * Whether every matching document was collected
+     */
+    private final boolean complete;
+    /**
+     * Most common tags among all matching documents, or null if tag
+     * counts were not requested
+     */
+    private final List<TagCountDTO> tagCounts;
+    private final long totalHits;
+    /**
+     * Whether the total is exact, rather than a lower bound
+     */
+    private final boolean totalHitsExact;
+
+    /**
+     * @return Whether the hits include the first count hits, or every
+     * hit if there are fewer
+     */
+    public boolean covers(int count) {
+        return complete || scoreDocs.length >= count;
+    }
+}
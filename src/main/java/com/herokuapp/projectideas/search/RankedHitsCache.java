@@ -0,0 +1,120 @@
+package com.herokuapp.projectideas.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+
+/**
+ * Bounded cache of the ranked hits of recent searches and listings of one
+ * index, so that paging through results, or serving the same listing to
+ * many users, searches the index once per refresh instead of once per
+ * request. Entries are keyed by the searcher's reader as well as the
+ * query, and the whole cache is cleared whenever the searcher refreshes.
+ */
+class RankedHitsCache {
+
+    private final Cache<Key, RankedHits> cache;
+
+    RankedHitsCache(
+        String index,
+        SearcherManager searcherManager,
+        long maximumSize,
+        MeterRegistry meterRegistry
+    ) {
+        this.cache =
+            Caffeine
+                .newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(
+            meterRegistry,
+            cache,
+            index + "RankedHits"
+        );
+        searcherManager.addListener(
+            new ReferenceManager.RefreshListener() {
+                @Override
+                public void beforeRefresh() {}
+
+                @Override
+                public void afterRefresh(boolean didRefresh) {
+                    if (didRefresh) {
+                        cache.invalidateAll();
+                    }
+                }
+            }
+        );
+    }
+
+    /**
+     * @param cursor Cursor the hits were collected after, or null if they
+     * were collected from the first hit
+     * @return The cached hits of the query collected with the searcher,
+     * or null if there are none
+     */
+    public RankedHits get(
+        IndexSearcher indexSearcher,
+        Query query,
+        Sort sort,
+        SearchCursor cursor,
+        int tagCount
+    ) {
+        return cache.getIfPresent(
+            getKey(indexSearcher, query, sort, cursor, tagCount)
+        );
+    }
+
+    public void put(
+        IndexSearcher indexSearcher,
+        Query query,
+        Sort sort,
+        SearchCursor cursor,
+        int tagCount,
+        RankedHits rankedHits
+    ) {
+        cache.put(
+            getKey(indexSearcher, query, sort, cursor, tagCount),
+            rankedHits
+        );
+    }
+
+    private static Key getKey(
+        IndexSearcher indexSearcher,
+        Query query,
+        Sort sort,
+        SearchCursor cursor,
+        int tagCount
+    ) {
+        return new Key(
+            indexSearcher.getIndexReader().getReaderCacheHelper().getKey(),
+            query,
+            sort,
+            cursor,
+            tagCount
+        );
+    }
+
+    /**
+     * Queries are built from analyzed terms, so equal keys are found for
+     * query strings that only differ in case or spacing
+     */
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class Key {
+
+        private final Object readerKey;
+        private final Query query;
+        private final Sort sort;
+        private final SearchCursor cursor;
+        private final int tagCount;
+    }
+}
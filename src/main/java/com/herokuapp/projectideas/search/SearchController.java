@@ -1,5 +1,9 @@
 package com.herokuapp.projectideas.search;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.herokuapp.projectideas.database.Database;
 import com.herokuapp.projectideas.database.document.DocumentPage;
 import com.herokuapp.projectideas.database.document.post.Idea;
@@ -7,39 +11,77 @@ import com.herokuapp.projectideas.database.document.project.Project;
 import com.herokuapp.projectideas.database.document.tag.IdeaTag;
 import com.herokuapp.projectideas.database.document.tag.ProjectTag;
 import com.herokuapp.projectideas.database.document.tag.Tag;
+import com.herokuapp.projectideas.database.exception.InvalidCursorException;
 import com.herokuapp.projectideas.dto.DTOMapper;
 import com.herokuapp.projectideas.dto.post.PreviewIdeaDTO;
 import com.herokuapp.projectideas.dto.post.PreviewIdeaPageDTO;
 import com.herokuapp.projectideas.dto.project.PreviewProjectDTO;
 import com.herokuapp.projectideas.dto.project.PreviewProjectPageDTO;
+import com.herokuapp.projectideas.dto.search.SearchSuggestionsDTO;
+import com.herokuapp.projectideas.dto.search.TitleSuggestionDTO;
+import com.herokuapp.projectideas.dto.tag.TagCountDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.FeatureField;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.queries.mlt.MoreLikeThis;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.FuzzyQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.PhraseQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
-import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -61,149 +103,442 @@ public class SearchController {
     @Autowired
     private Analyzer analyzer;
 
+    @Autowired
+    private TagSuggester tagSuggester;
+
     @Autowired
     DTOMapper mapper;
 
-    private static final Logger logger = LoggerFactory.getLogger(
-        IndexController.class
-    );
+    @Autowired
+    private ObjectMapper objectMapper;
 
-    public static Query getIdQuery(String id) {
-        PhraseQuery.Builder phraseQuery = new PhraseQuery.Builder();
-        phraseQuery.add(new Term("id", id));
-        return phraseQuery.build();
-    }
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-    private List<Document> searchIdeaIndex(String queryString) {
-        try {
-            ideaSearcherManager.maybeRefresh();
-            IndexSearcher indexSearcher = ideaSearcherManager.acquire();
+    /**
+     * Tag facet state of the current idea and project searchers
+     */
+    private final AtomicReference<SortedSetDocValuesReaderState> ideaFacetState = new AtomicReference<>();
+    private final AtomicReference<SortedSetDocValuesReaderState> projectFacetState = new AtomicReference<>();
 
-            BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
-            PhraseQuery.Builder phraseQueryTitle = new PhraseQuery.Builder();
-            PhraseQuery.Builder phraseQueryContent = new PhraseQuery.Builder();
-            phraseQueryTitle.setSlop(10);
-            phraseQueryContent.setSlop(20);
+    /**
+     * Age in seconds worth a factor of ten in upvotes when ranking by
+     * hotness
+     */
+    @Value("${projectideas.search.hotnessGravitySeconds:45000}")
+    private double hotnessGravitySeconds;
 
-            List<String> terms = tokenizeQuery(queryString);
+    /**
+     * Most searches and listings whose ranked hits are cached per index
+     */
+    @Value("${projectideas.search.rankedHitsCache.maximumSize:1000}")
+    private long rankedHitsCacheMaximumSize;
 
-            for (String term : terms) {
-                phraseQueryTitle.add(new Term("title", term));
-                phraseQueryContent.add(new Term("content", term));
-            }
+    private RankedHitsCache ideaRankedHits;
+    private RankedHitsCache projectRankedHits;
+
+    /**
+     * Ideas and projects related to each idea, cleared whenever the idea
+     * or project searcher refreshes
+     */
+    private Cache<RelatedHitsKey, List<IndexHit>> relatedHits;
+
+    /**
+     * Built once, since sorts by a values source are only equal to
+     * themselves, and sorts are part of ranked hits cache keys
+     */
+    private Sort hotnessSort;
+
+    /**
+     * Stored fields to load for each hit
+     */
+    private static final Set<String> PREVIEW_FIELD = Set.of("preview");
+
+    /**
+     * Most tags whose counts can be requested with a page
+     */
+    private static final int MAX_TAG_COUNT = 50;
+
+    private static final int MAX_TAG_SUGGESTIONS = 5;
+
+    private static final int MAX_RELATED = 5;
 
-            booleanQuery.add(phraseQueryTitle.build(), Occur.SHOULD);
-            booleanQuery.add(phraseQueryContent.build(), Occur.SHOULD);
+    /**
+     * Fewest documents a term must appear in to be used to find related
+     * documents, so that terms unique to the idea are ignored
+     */
+    private static final int MIN_RELATED_DOC_FREQ = 2;
 
-            TopDocs topDocs = indexSearcher.search(
-                booleanQuery.build(),
-                Database.ITEMS_PER_PAGE * 10
+    /**
+     * Fewest hits collected for a search or listing, so that the first
+     * pages are all served from the ranked hits of one search
+     */
+    private static final int MIN_RANKED_HITS = 100;
+
+    /**
+     * Breaks ties between hits, so that every hit after a cursor is
+     * well defined
+     */
+    private static final SortField ID_SORT_FIELD = new SortField(
+        "id",
+        SortField.Type.STRING
+    );
+
+    private static final Sort RELEVANCE_SORT = new Sort(
+        SortField.FIELD_SCORE,
+        ID_SORT_FIELD
+    );
+
+    private static final Logger logger = LoggerFactory.getLogger(
+        SearchController.class
+    );
+
+    @PostConstruct
+    private void init() {
+        ideaRankedHits =
+            new RankedHitsCache(
+                "idea",
+                ideaSearcherManager,
+                rankedHitsCacheMaximumSize,
+                meterRegistry
             );
-            List<Document> documents = new ArrayList<>();
-            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                documents.add(indexSearcher.doc(scoreDoc.doc));
-            }
+        projectRankedHits =
+            new RankedHitsCache(
+                "project",
+                projectSearcherManager,
+                rankedHitsCacheMaximumSize,
+                meterRegistry
+            );
+        hotnessSort =
+            new Sort(
+                new HotnessValuesSource(hotnessGravitySeconds)
+                .getSortField(true),
+                ID_SORT_FIELD
+            );
+        relatedHits =
+            Caffeine
+                .newBuilder()
+                .maximumSize(rankedHitsCacheMaximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(
+            meterRegistry,
+            relatedHits,
+            "relatedHits"
+        );
+        for (SearcherManager searcherManager : List.of(
+            ideaSearcherManager,
+            projectSearcherManager
+        )) {
+            searcherManager.addListener(
+                new ReferenceManager.RefreshListener() {
+                    @Override
+                    public void beforeRefresh() {}
 
-            ideaSearcherManager.release(indexSearcher);
-            return documents;
-        } catch (Exception e) {
-            logger.error("Failed to search idea index", e);
-            return null;
+                    @Override
+                    public void afterRefresh(boolean didRefresh) {
+                        if (didRefresh) {
+                            relatedHits.invalidateAll();
+                        }
+                    }
+                }
+            );
         }
     }
 
-    private List<Document> getIdeaIndexSortedBy(String scoreType) {
-        try {
-            ideaSearcherManager.maybeRefresh();
-            IndexSearcher indexSearcher = ideaSearcherManager.acquire();
+    public static Query getIdQuery(String id) {
+        return new TermQuery(new Term("id", id));
+    }
 
-            Sort sort = new Sort(
-                new SortedNumericSortField(scoreType, SortField.Type.LONG, true)
-            );
-            TopDocs topDocs = indexSearcher.search(
-                new MatchAllDocsQuery(),
-                100000,
-                sort
-            );
+    private Query getIdeaSearchQuery(String queryString) {
+        BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
+        PhraseQuery.Builder phraseQueryTitle = new PhraseQuery.Builder();
+        PhraseQuery.Builder phraseQueryContent = new PhraseQuery.Builder();
+        phraseQueryTitle.setSlop(10);
+        phraseQueryContent.setSlop(20);
 
-            List<Document> documents = new ArrayList<>();
-            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                documents.add(indexSearcher.doc(scoreDoc.doc));
-            }
+        List<String> terms = tokenizeQuery(queryString);
 
-            ideaSearcherManager.release(indexSearcher);
-            return documents;
-        } catch (Exception e) {
-            logger.error("Failed to get idea index sorted by " + scoreType, e);
-            return null;
+        for (String term : terms) {
+            phraseQueryTitle.add(new Term("title", term));
+            phraseQueryContent.add(new Term("content", term));
         }
-    }
 
-    private List<Document> searchProjectIndex(String queryString) {
-        try {
-            projectSearcherManager.maybeRefresh();
-            IndexSearcher indexSearcher = projectSearcherManager.acquire();
+        booleanQuery.add(phraseQueryTitle.build(), Occur.SHOULD);
+        booleanQuery.add(phraseQueryContent.build(), Occur.SHOULD);
+        return booleanQuery.build();
+    }
 
-            BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
-            PhraseQuery.Builder phraseQueryName = new PhraseQuery.Builder();
-            PhraseQuery.Builder phraseQueryDescription = new PhraseQuery.Builder();
-            phraseQueryName.setSlop(10);
-            phraseQueryDescription.setSlop(20);
+    private Query getProjectSearchQuery(String queryString) {
+        BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
+        PhraseQuery.Builder phraseQueryName = new PhraseQuery.Builder();
+        PhraseQuery.Builder phraseQueryDescription = new PhraseQuery.Builder();
+        phraseQueryName.setSlop(10);
+        phraseQueryDescription.setSlop(20);
 
-            List<String> terms = tokenizeQuery(queryString);
+        List<String> terms = tokenizeQuery(queryString);
 
-            for (String term : terms) {
-                phraseQueryName.add(new Term("name", term));
-                phraseQueryDescription.add(new Term("description", term));
-            }
+        for (String term : terms) {
+            phraseQueryName.add(new Term("name", term));
+            phraseQueryDescription.add(new Term("description", term));
+        }
 
-            booleanQuery.add(phraseQueryName.build(), Occur.SHOULD);
-            booleanQuery.add(phraseQueryDescription.build(), Occur.SHOULD);
+        booleanQuery.add(phraseQueryName.build(), Occur.SHOULD);
+        booleanQuery.add(phraseQueryDescription.build(), Occur.SHOULD);
+        return booleanQuery.build();
+    }
 
-            TopDocs topDocs = indexSearcher.search(
-                booleanQuery.build(),
-                Database.ITEMS_PER_PAGE * 10
+    private Query getTagQuery(List<String> tags, boolean matchAll) {
+        BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
+        for (String tag : tags) {
+            booleanQuery.add(
+                new TermQuery(new Term("tag", tag)),
+                matchAll ? Occur.FILTER : Occur.SHOULD
             );
-            List<Document> documents = new ArrayList<>();
-            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                documents.add(indexSearcher.doc(scoreDoc.doc));
-            }
-
-            projectSearcherManager.release(indexSearcher);
-            return documents;
-        } catch (Exception e) {
-            logger.error("Failed to search project index", e);
-            return null;
         }
+        return booleanQuery.build();
     }
 
-    private List<Document> getProjectIndexSortedBy(String scoreType) {
+    /**
+     * Gets one page of documents matching a query, either by page number
+     * or, when a cursor is given, the page following the cursor. Pages by
+     * number share the cached ranked hits of the query, which are only
+     * collected again once a page beyond them is requested. Pages after a
+     * cursor only collect the hits on the page. Only the hits on the page
+     * are read.
+     */
+    private IndexPage getIndexPage(
+        SearcherManager searcherManager,
+        AtomicReference<SortedSetDocValuesReaderState> facetState,
+        RankedHitsCache rankedHitsCache,
+        Query query,
+        Sort sort,
+        int page,
+        SearchCursor cursor,
+        int pageSize,
+        int tagCount
+    ) throws IOException {
+        int pageStart = cursor == null
+            ? Math.max(page - 1, 0) * pageSize
+            : 0;
+        int pageEnd = pageStart + pageSize;
+        tagCount = Math.max(Math.min(tagCount, MAX_TAG_COUNT), 0);
+        IndexSearcher indexSearcher = searcherManager.acquire();
         try {
-            projectSearcherManager.maybeRefresh();
-            IndexSearcher indexSearcher = projectSearcherManager.acquire();
+            RankedHits rankedHits = rankedHitsCache.get(
+                indexSearcher,
+                query,
+                sort,
+                cursor,
+                tagCount
+            );
+            // One more hit than the page needs tells whether there is a
+            // following page
+            if (rankedHits == null || !rankedHits.covers(pageEnd + 1)) {
+                int hitCount = pageEnd + 1;
+                if (cursor == null) {
+                    hitCount = Math.max(hitCount, MIN_RANKED_HITS);
+                    if (rankedHits != null) {
+                        hitCount =
+                            Math.max(
+                                hitCount,
+                                rankedHits.getScoreDocs().length * 2
+                            );
+                    }
+                }
+                rankedHits =
+                    getRankedHits(
+                        indexSearcher,
+                        facetState,
+                        query,
+                        sort,
+                        cursor == null
+                            ? null
+                            : cursor.getAfter(indexSearcher),
+                        hitCount,
+                        tagCount
+                    );
+                rankedHitsCache.put(
+                    indexSearcher,
+                    query,
+                    sort,
+                    cursor,
+                    tagCount,
+                    rankedHits
+                );
+            }
 
-            Sort sort = new Sort(
-                new SortedNumericSortField(scoreType, SortField.Type.LONG, true)
+            ScoreDoc[] scoreDocs = rankedHits.getScoreDocs();
+            List<IndexHit> hits = readHits(
+                indexSearcher,
+                scoreDocs,
+                pageStart,
+                Math.min(pageEnd, scoreDocs.length)
             );
-            TopDocs topDocs = indexSearcher.search(
-                new MatchAllDocsQuery(),
-                100000,
-                sort
+            boolean lastPage = scoreDocs.length <= pageEnd;
+            return new IndexPage(
+                hits,
+                lastPage,
+                rankedHits.getTagCounts(),
+                lastPage
+                    ? null
+                    : SearchCursor.encode((FieldDoc) scoreDocs[pageEnd - 1]),
+                rankedHits.getTotalHits(),
+                rankedHits.isTotalHitsExact()
             );
+        } finally {
+            searcherManager.release(indexSearcher);
+        }
+    }
 
-            List<Document> documents = new ArrayList<>();
-            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                documents.add(indexSearcher.doc(scoreDoc.doc));
+    /**
+     * Collects the leading hits of a query, after the given hit if there
+     * is one. If tag counts are requested, they are counted over all
+     * matching documents while collecting the hits, so their total is
+     * exact. Otherwise the total is only counted exactly up to Lucene's
+     * default threshold.
+     */
+    private RankedHits getRankedHits(
+        IndexSearcher indexSearcher,
+        AtomicReference<SortedSetDocValuesReaderState> facetState,
+        Query query,
+        Sort sort,
+        FieldDoc after,
+        int hitCount,
+        int tagCount
+    ) throws IOException {
+        TopDocs topDocs;
+        List<TagCountDTO> tagCounts = null;
+        if (tagCount > 0) {
+            FacetsCollector facetsCollector = new FacetsCollector();
+            topDocs =
+                FacetsCollector.searchAfter(
+                    indexSearcher,
+                    after,
+                    query,
+                    hitCount,
+                    sort,
+                    facetsCollector
+                );
+            tagCounts =
+                getTagCounts(
+                    indexSearcher,
+                    facetState,
+                    facetsCollector,
+                    tagCount
+                );
+        } else {
+            topDocs = indexSearcher.searchAfter(after, query, hitCount, sort);
+        }
+        return new RankedHits(
+            topDocs.scoreDocs,
+            topDocs.scoreDocs.length < hitCount,
+            tagCounts,
+            topDocs.totalHits.value,
+            topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO
+        );
+    }
+
+    /**
+     * Counts the most common tags among the collected documents. The
+     * state mapping tag facet ordinals is built once per searcher, the
+     * first time tags are counted with it.
+     */
+    private List<TagCountDTO> getTagCounts(
+        IndexSearcher indexSearcher,
+        AtomicReference<SortedSetDocValuesReaderState> facetState,
+        FacetsCollector facetsCollector,
+        int tagCount
+    ) throws IOException {
+        SortedSetDocValuesReaderState state = facetState.get();
+        if (
+            state == null ||
+            state.getReader() != indexSearcher.getIndexReader()
+        ) {
+            try {
+                state =
+                    new DefaultSortedSetDocValuesReaderState(
+                        indexSearcher.getIndexReader()
+                    );
+            } catch (IllegalArgumentException e) {
+                // No document in the index has tags
+                return new ArrayList<>();
             }
+            facetState.set(state);
+        }
 
-            projectSearcherManager.release(indexSearcher);
-            return documents;
-        } catch (Exception e) {
-            logger.error(
-                "Failed to get project index sorted by " + scoreType,
-                e
+        FacetResult result;
+        try {
+            result =
+                new SortedSetDocValuesFacetCounts(state, facetsCollector)
+                .getTopChildren(tagCount, "tag");
+        } catch (IllegalArgumentException e) {
+            // No document in the index has tags
+            return new ArrayList<>();
+        }
+        List<TagCountDTO> tagCounts = new ArrayList<>();
+        if (result != null) {
+            for (LabelAndValue labelAndValue : result.labelValues) {
+                tagCounts.add(
+                    new TagCountDTO(
+                        labelAndValue.label,
+                        labelAndValue.value.intValue()
+                    )
+                );
+            }
+        }
+        return tagCounts;
+    }
+
+    private IndexPage getIdeaIndexPage(
+        Query query,
+        Sort sort,
+        int page,
+        SearchCursor cursor,
+        int pageSize,
+        int tagCount
+    ) {
+        try {
+            return getIndexPage(
+                ideaSearcherManager,
+                ideaFacetState,
+                ideaRankedHits,
+                query,
+                sort,
+                page,
+                cursor,
+                pageSize,
+                tagCount
             );
-            return null;
+        } catch (IOException e) {
+            logger.error("Failed to search idea index", e);
+            return new IndexPage(new ArrayList<>(), true, null, null, 0, true);
+        }
+    }
+
+    private IndexPage getProjectIndexPage(
+        Query query,
+        Sort sort,
+        int page,
+        SearchCursor cursor,
+        int pageSize,
+        int tagCount
+    ) {
+        try {
+            return getIndexPage(
+                projectSearcherManager,
+                projectFacetState,
+                projectRankedHits,
+                query,
+                sort,
+                page,
+                cursor,
+                pageSize,
+                tagCount
+            );
+        } catch (IOException e) {
+            logger.error("Failed to search project index", e);
+            return new IndexPage(new ArrayList<>(), true, null, null, 0, true);
         }
     }
 
@@ -212,198 +547,764 @@ public class SearchController {
         Class<T> classType
     ) {
         try {
-            tagSearcherManager.maybeRefresh();
             IndexSearcher indexSearcher = tagSearcherManager.acquire();
+            try {
+                BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
+                List<String> terms = tokenizeQuery(queryString);
 
-            BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
-            List<String> terms = tokenizeQuery(queryString);
-
-            for (String term : terms) {
+                for (String term : terms) {
+                    booleanQuery.add(
+                        new FuzzyQuery(new Term("name", term)),
+                        Occur.MUST
+                    );
+                }
                 booleanQuery.add(
-                    new FuzzyQuery(new Term("name", term)),
+                    new TermQuery(
+                        new Term(
+                            "type",
+                            classType.getSimpleName().toLowerCase()
+                        )
+                    ),
                     Occur.MUST
                 );
-            }
-            booleanQuery.add(
-                new TermQuery(
-                    new Term("type", classType.getSimpleName().toLowerCase())
-                ),
-                Occur.MUST
-            );
-            booleanQuery.add(
-                FeatureField.newSaturationQuery("features", "usages"),
-                Occur.SHOULD
-            );
+                booleanQuery.add(
+                    FeatureField.newSaturationQuery("features", "usages"),
+                    Occur.SHOULD
+                );
 
-            TopDocs topDocs = indexSearcher.search(booleanQuery.build(), 5);
-            List<Document> documents = new ArrayList<>();
-            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                documents.add(indexSearcher.doc(scoreDoc.doc));
+                TopDocs topDocs = indexSearcher.search(
+                    booleanQuery.build(),
+                    MAX_TAG_SUGGESTIONS
+                );
+                List<Document> documents = new ArrayList<>();
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    documents.add(indexSearcher.doc(scoreDoc.doc));
+                }
+                return documents;
+            } finally {
+                tagSearcherManager.release(indexSearcher);
             }
-
-            tagSearcherManager.release(indexSearcher);
-            return documents;
         } catch (Exception e) {
             logger.error("Failed to search tag index", e);
             return null;
         }
     }
 
-    private List<String> searchForIdea(String queryString) {
-        List<Document> documents = searchIdeaIndex(queryString);
-        List<String> ids = documents
-            .stream()
-            .map(doc -> doc.get("id"))
-            .collect(Collectors.toList());
-        return ids;
-    }
-
-    private List<String> getIdeasSortedBy(String scoreType) {
-        List<Document> documents = getIdeaIndexSortedBy(scoreType);
-        List<String> ids = documents
-            .stream()
-            .map(doc -> doc.get("id"))
-            .collect(Collectors.toList());
-        return ids;
-    }
-
-    private List<String> getProjectsSortedBy(String scoreType) {
-        List<Document> documents = getProjectIndexSortedBy(scoreType);
-        List<String> ids = documents
-            .stream()
-            .map(doc -> doc.get("id"))
-            .collect(Collectors.toList());
-        return ids;
-    }
-
-    private List<String> searchForProject(String queryString) {
-        List<Document> documents = searchProjectIndex(queryString);
-        List<String> ids = documents
-            .stream()
-            .map(doc -> doc.get("id"))
-            .collect(Collectors.toList());
-        return ids;
+    /**
+     * Scores are computed from the raw upvote count and creation time
+     * doc values at query time, so changing how they are computed does
+     * not require reindexing. Every sort ends with the id, so that hits
+     * have a total order for cursors.
+     */
+    private Sort getSort(String scoreType) {
+        switch (scoreType) {
+            case "recency":
+                return new Sort(
+                    new SortField("timeCreated", SortField.Type.LONG, true),
+                    ID_SORT_FIELD
+                );
+            case "upvotes":
+                return new Sort(
+                    new SortField("upvoteCount", SortField.Type.LONG, true),
+                    new SortField("timeCreated", SortField.Type.LONG, true),
+                    ID_SORT_FIELD
+                );
+            case "hotness":
+                return hotnessSort;
+            default:
+                throw new IllegalArgumentException(
+                    "Unknown score type " + scoreType
+                );
+        }
     }
 
+    /**
+     * Searches ideas by title and content. If tagCount is positive, the
+     * most common tags among all results are returned with the page.
+     */
     public PreviewIdeaPageDTO searchForIdeaByPage(
         String queryString,
         String userId,
-        int page
+        int page,
+        int tagCount
     ) {
-        List<String> idResults = searchForIdea(queryString);
-        return getIdeaPage(idResults, page, userId);
+        IndexPage indexPage = getIdeaIndexPage(
+            getIdeaSearchQuery(queryString),
+            RELEVANCE_SORT,
+            page,
+            null,
+            Database.ITEMS_PER_PAGE,
+            tagCount
+        );
+        return getIdeaPage(indexPage, userId);
+    }
+
+    /**
+     * Searches ideas by title and content, getting the page following the
+     * cursor returned with the previous page, or the first page if there
+     * is no cursor.
+     */
+    public PreviewIdeaPageDTO searchForIdeaByCursor(
+        String queryString,
+        String userId,
+        String cursor,
+        int pageSize,
+        int tagCount
+    ) throws InvalidCursorException {
+        IndexPage indexPage = getIdeaIndexPage(
+            getIdeaSearchQuery(queryString),
+            RELEVANCE_SORT,
+            1,
+            getCursor(cursor, RELEVANCE_SORT),
+            pageSize,
+            tagCount
+        );
+        return getIdeaPage(indexPage, userId);
     }
 
+    /**
+     * Searches public projects by name and description. If tagCount is
+     * positive, the most common tags among all results are returned with
+     * the page.
+     */
     public PreviewProjectPageDTO searchForProjectByPage(
         String queryString,
         int page,
+        int tagCount,
         String userId
     ) {
-        List<String> idResults = searchForProject(queryString);
-        return getProjectPage(idResults, page, userId);
+        IndexPage indexPage = getProjectIndexPage(
+            getProjectSearchQuery(queryString),
+            RELEVANCE_SORT,
+            page,
+            null,
+            Database.ITEMS_PER_PAGE,
+            tagCount
+        );
+        return getProjectPage(indexPage, userId);
     }
 
-    public PreviewIdeaPageDTO getIdeaPageByRecency(int page, String userId) {
-        List<String> idResults = getIdeasSortedBy("recency");
-        return getIdeaPage(idResults, page, userId);
+    /**
+     * Searches public projects by name and description, getting the page
+     * following the cursor returned with the previous page, or the first
+     * page if there is no cursor.
+     */
+    public PreviewProjectPageDTO searchForProjectByCursor(
+        String queryString,
+        String cursor,
+        int pageSize,
+        int tagCount,
+        String userId
+    ) throws InvalidCursorException {
+        IndexPage indexPage = getProjectIndexPage(
+            getProjectSearchQuery(queryString),
+            RELEVANCE_SORT,
+            1,
+            getCursor(cursor, RELEVANCE_SORT),
+            pageSize,
+            tagCount
+        );
+        return getProjectPage(indexPage, userId);
     }
 
-    public PreviewIdeaPageDTO getIdeaPageByUpvotes(int page, String userId) {
-        List<String> idResults = getIdeasSortedBy("upvotes");
-        return getIdeaPage(idResults, page, userId);
+    /**
+     * Gets a page of all ideas, sorted by hotness, recency or upvotes.
+     */
+    public PreviewIdeaPageDTO getIdeaPageSortedBy(
+        String scoreType,
+        int page,
+        int tagCount,
+        String userId
+    ) {
+        IndexPage indexPage = getIdeaIndexPage(
+            new MatchAllDocsQuery(),
+            getSort(scoreType),
+            page,
+            null,
+            Database.ITEMS_PER_PAGE,
+            tagCount
+        );
+        return getIdeaPage(indexPage, userId);
     }
 
-    public PreviewIdeaPageDTO getIdeaPageByHotness(int page, String userId) {
-        List<String> idResults = getIdeasSortedBy("hotness");
-        return getIdeaPage(idResults, page, userId);
+    /**
+     * Gets a page of all public projects, sorted by hotness, recency or
+     * upvotes.
+     */
+    public PreviewProjectPageDTO getProjectPageSortedBy(
+        String scoreType,
+        int page,
+        int tagCount,
+        String userId
+    ) {
+        IndexPage indexPage = getProjectIndexPage(
+            new MatchAllDocsQuery(),
+            getSort(scoreType),
+            page,
+            null,
+            Database.ITEMS_PER_PAGE,
+            tagCount
+        );
+        return getProjectPage(indexPage, userId);
     }
 
-    public PreviewProjectPageDTO getProjectPageByRecency(
+    /**
+     * Gets a page of ideas with all or any of the given tags.
+     */
+    public PreviewIdeaPageDTO getIdeaPageByTags(
+        List<String> tags,
+        boolean matchAll,
+        String scoreType,
         int page,
+        int pageSize,
+        int tagCount,
         String userId
     ) {
-        List<String> idResults = getProjectsSortedBy("recency");
-        return getProjectPage(idResults, page, userId);
+        IndexPage indexPage = getIdeaIndexPage(
+            getTagQuery(tags, matchAll),
+            getSort(scoreType),
+            page,
+            null,
+            pageSize,
+            tagCount
+        );
+        return getIdeaPage(indexPage, userId);
+    }
+
+    /**
+     * Gets the page of ideas with all or any of the given tags following
+     * the cursor returned with the previous page, or the first page if
+     * there is no cursor.
+     */
+    public PreviewIdeaPageDTO getIdeaPageByTagsAndCursor(
+        List<String> tags,
+        boolean matchAll,
+        String scoreType,
+        String cursor,
+        int pageSize,
+        int tagCount,
+        String userId
+    ) throws InvalidCursorException {
+        Sort sort = getSort(scoreType);
+        IndexPage indexPage = getIdeaIndexPage(
+            getTagQuery(tags, matchAll),
+            sort,
+            1,
+            getCursor(cursor, sort),
+            pageSize,
+            tagCount
+        );
+        return getIdeaPage(indexPage, userId);
     }
 
-    public PreviewProjectPageDTO getProjectPageByUpvotes(
+    /**
+     * Gets a page of public projects with all or any of the given tags.
+     */
+    public PreviewProjectPageDTO getProjectPageByTags(
+        List<String> tags,
+        boolean matchAll,
+        String scoreType,
         int page,
+        int pageSize,
+        int tagCount,
         String userId
     ) {
-        List<String> idResults = getProjectsSortedBy("upvotes");
-        return getProjectPage(idResults, page, userId);
+        IndexPage indexPage = getProjectIndexPage(
+            getTagQuery(tags, matchAll),
+            getSort(scoreType),
+            page,
+            null,
+            pageSize,
+            tagCount
+        );
+        return getProjectPage(indexPage, userId);
     }
 
-    public PreviewProjectPageDTO getProjectPageByHotness(
-        int page,
+    /**
+     * Gets the page of public projects with all or any of the given tags
+     * following the cursor returned with the previous page, or the first
+     * page if there is no cursor.
+     */
+    public PreviewProjectPageDTO getProjectPageByTagsAndCursor(
+        List<String> tags,
+        boolean matchAll,
+        String scoreType,
+        String cursor,
+        int pageSize,
+        int tagCount,
         String userId
+    ) throws InvalidCursorException {
+        Sort sort = getSort(scoreType);
+        IndexPage indexPage = getProjectIndexPage(
+            getTagQuery(tags, matchAll),
+            sort,
+            1,
+            getCursor(cursor, sort),
+            pageSize,
+            tagCount
+        );
+        return getProjectPage(indexPage, userId);
+    }
+
+    /**
+     * Suggests the hottest ideas and projects with a title word starting
+     * with each word of the prefix. Titles are read from the stored
+     * previews, so suggestions never read from the database.
+     */
+    public SearchSuggestionsDTO getTitleSuggestions(String prefix, int limit) {
+        BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
+        for (String word : prefix.toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            booleanQuery.add(
+                new TermQuery(
+                    new Term(
+                        "titlePrefix",
+                        word.substring(
+                            0,
+                            Math.min(
+                                word.length(),
+                                LuceneConfig.MAX_TITLE_PREFIX_LENGTH
+                            )
+                        )
+                    )
+                ),
+                Occur.FILTER
+            );
+        }
+        BooleanQuery query = booleanQuery.build();
+        if (query.clauses().isEmpty()) {
+            return new SearchSuggestionsDTO(
+                new ArrayList<>(),
+                new ArrayList<>()
+            );
+        }
+        return new SearchSuggestionsDTO(
+            getTitleSuggestions(ideaSearcherManager, query, "title", limit),
+            getTitleSuggestions(projectSearcherManager, query, "name", limit)
+        );
+    }
+
+    private List<TitleSuggestionDTO> getTitleSuggestions(
+        SearcherManager searcherManager,
+        Query query,
+        String titleField,
+        int limit
     ) {
-        List<String> idResults = getProjectsSortedBy("hotness");
-        return getProjectPage(idResults, page, userId);
+        List<TitleSuggestionDTO> suggestions = new ArrayList<>();
+        try {
+            IndexSearcher indexSearcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs = indexSearcher.search(
+                    query,
+                    limit,
+                    hotnessSort
+                );
+                List<IndexHit> hits = readHits(
+                    indexSearcher,
+                    topDocs.scoreDocs,
+                    0,
+                    topDocs.scoreDocs.length
+                );
+                for (IndexHit hit : hits) {
+                    if (hit.getPreview() != null) {
+                        suggestions.add(
+                            new TitleSuggestionDTO(
+                                hit.getId(),
+                                objectMapper
+                                    .readTree(hit.getPreview())
+                                    .path(titleField)
+                                    .asText()
+                            )
+                        );
+                    }
+                }
+            } finally {
+                searcherManager.release(indexSearcher);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to suggest titles", e);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Gets the ideas most like an idea, by the terms of its title and
+     * content.
+     */
+    public List<PreviewIdeaDTO> getRelatedIdeas(String ideaId, String userId) {
+        List<IndexHit> hits = getRelatedHits(
+            ideaId,
+            "idea",
+            ideaSearcherManager,
+            "title",
+            "content"
+        );
+        PreviewIdeaPageDTO ideaPage = getIdeaPage(
+            new IndexPage(hits, true, null, null, hits.size(), true),
+            userId
+        );
+        return ideaPage.getIdeaPreviews();
+    }
+
+    /**
+     * Gets the public projects most like an idea, matching the terms of
+     * the idea's title and content against project names and
+     * descriptions.
+     */
+    public List<PreviewProjectDTO> getRelatedProjects(
+        String ideaId,
+        String userId
+    ) {
+        List<IndexHit> hits = getRelatedHits(
+            ideaId,
+            "project",
+            projectSearcherManager,
+            "name",
+            "description"
+        );
+        PreviewProjectPageDTO projectPage = getProjectPage(
+            new IndexPage(hits, true, null, null, hits.size(), true),
+            userId
+        );
+        return projectPage.getProjectPreviews();
+    }
+
+    /**
+     * Finds the documents of an index most like an idea with
+     * MoreLikeThis. The idea's terms are read back from its term vectors
+     * and weighed by their frequencies in the target index. Hits are
+     * cached until either searcher refreshes.
+     */
+    private List<IndexHit> getRelatedHits(
+        String ideaId,
+        String index,
+        SearcherManager targetSearcherManager,
+        String titleField,
+        String contentField
+    ) {
+        try {
+            IndexSearcher ideaSearcher = ideaSearcherManager.acquire();
+            IndexSearcher targetSearcher = null;
+            try {
+                targetSearcher = targetSearcherManager.acquire();
+                RelatedHitsKey key = new RelatedHitsKey(
+                    ideaId,
+                    index,
+                    ideaSearcher
+                        .getIndexReader()
+                        .getReaderCacheHelper()
+                        .getKey(),
+                    targetSearcher
+                        .getIndexReader()
+                        .getReaderCacheHelper()
+                        .getKey()
+                );
+                List<IndexHit> hits = relatedHits.getIfPresent(key);
+                if (hits == null) {
+                    hits =
+                        findRelatedHits(
+                            ideaSearcher,
+                            targetSearcher,
+                            ideaId,
+                            titleField,
+                            contentField
+                        );
+                    relatedHits.put(key, hits);
+                }
+                return hits;
+            } finally {
+                if (targetSearcher != null) {
+                    targetSearcherManager.release(targetSearcher);
+                }
+                ideaSearcherManager.release(ideaSearcher);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to find documents related to " + ideaId, e);
+            return new ArrayList<>();
+        }
+    }
+
+    private List<IndexHit> findRelatedHits(
+        IndexSearcher ideaSearcher,
+        IndexSearcher targetSearcher,
+        String ideaId,
+        String titleField,
+        String contentField
+    ) throws IOException {
+        TopDocs ideaDocs = ideaSearcher.search(getIdQuery(ideaId), 1);
+        if (ideaDocs.scoreDocs.length == 0) {
+            return new ArrayList<>();
+        }
+        int ideaDoc = ideaDocs.scoreDocs[0].doc;
+        Map<String, Collection<Object>> ideaTerms = new HashMap<>();
+        ideaTerms.put(
+            titleField,
+            List.of(getTermVectorText(ideaSearcher, ideaDoc, "title"))
+        );
+        ideaTerms.put(
+            contentField,
+            List.of(getTermVectorText(ideaSearcher, ideaDoc, "content"))
+        );
+
+        MoreLikeThis moreLikeThis = new MoreLikeThis(
+            targetSearcher.getIndexReader()
+        );
+        moreLikeThis.setFieldNames(new String[] { titleField, contentField });
+        moreLikeThis.setAnalyzer(analyzer);
+        moreLikeThis.setMinTermFreq(1);
+        moreLikeThis.setMinDocFreq(MIN_RELATED_DOC_FREQ);
+        moreLikeThis.setBoost(true);
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        query.add(moreLikeThis.like(ideaTerms), Occur.MUST);
+        // Ideas are not related to themselves
+        query.add(getIdQuery(ideaId), Occur.MUST_NOT);
+        TopDocs topDocs = targetSearcher.search(query.build(), MAX_RELATED);
+        return readHits(
+            targetSearcher,
+            topDocs.scoreDocs,
+            0,
+            topDocs.scoreDocs.length
+        );
+    }
+
+    /**
+     * Rebuilds the analyzed text of a field from its term vector, with
+     * each term repeated as often as it occurs
+     */
+    private static String getTermVectorText(
+        IndexSearcher indexSearcher,
+        int doc,
+        String field
+    ) throws IOException {
+        Terms terms = indexSearcher.getIndexReader().getTermVector(doc, field);
+        if (terms == null) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder();
+        TermsEnum termsEnum = terms.iterator();
+        for (
+            BytesRef term = termsEnum.next();
+            term != null;
+            term = termsEnum.next()
+        ) {
+            String word = term.utf8ToString();
+            for (long i = 0; i < termsEnum.totalTermFreq(); i++) {
+                text.append(word).append(' ');
+            }
+        }
+        return text.toString();
+    }
+
+    private static SearchCursor getCursor(String cursor, Sort sort)
+        throws InvalidCursorException {
+        return cursor == null ? null : SearchCursor.decode(cursor, sort);
     }
 
     public List<String> searchForIdeaTags(String queryString) {
-        List<Document> documents = searchTagIndex(queryString, IdeaTag.class);
-        return documents
-            .stream()
-            .map(doc -> doc.get("name"))
-            .collect(Collectors.toList());
+        return searchForTags(queryString, IdeaTag.class);
     }
 
     public List<String> searchForProjectTags(String queryString) {
-        List<Document> documents = searchTagIndex(
-            queryString,
-            ProjectTag.class
+        return searchForTags(queryString, ProjectTag.class);
+    }
+
+    /**
+     * Suggests the most used tags starting with the query, falling back
+     * to a fuzzy search of the tag index only when no tag starts with it
+     */
+    private <T extends Tag> List<String> searchForTags(
+        String queryString,
+        Class<T> classType
+    ) {
+        List<String> suggestions = tagSuggester.suggest(
+            classType,
+            queryString.trim(),
+            MAX_TAG_SUGGESTIONS
         );
+        if (!suggestions.isEmpty()) {
+            return suggestions;
+        }
+        List<Document> documents = searchTagIndex(queryString, classType);
+        if (documents == null) {
+            return new ArrayList<>();
+        }
         return documents
             .stream()
             .map(doc -> doc.get("name"))
             .collect(Collectors.toList());
     }
 
+    /**
+     * Builds a page of idea previews from the previews stored in the
+     * index, or from the database if any idea on the page was indexed
+     * with an outdated preview.
+     */
     private PreviewIdeaPageDTO getIdeaPage(
-        List<String> idResults,
-        int page,
+        IndexPage indexPage,
         String userId
     ) {
-        boolean isLastPage = page * Database.ITEMS_PER_PAGE >= idResults.size();
-        DocumentPage<Idea> ideaResultsPage = database.getIdeaPageFromIds(
-            new DocumentPage<>(clampIdListToPage(idResults, page), isLastPage),
-            page
+        List<IndexedIdeaPreview> previews = readPreviews(
+            indexPage,
+            IndexedIdeaPreview.class,
+            preview -> preview.getVersion() == IndexedIdeaPreview.VERSION,
+            (preview, upvoteCount) -> preview.setUpvoteCount(upvoteCount)
         );
-
-        List<PreviewIdeaDTO> ideaPreviews = ideaResultsPage
-            .getDocuments()
-            .stream()
-            .map(idea -> mapper.previewIdeaDTO(idea, userId, database))
-            .collect(Collectors.toList());
-        return new PreviewIdeaPageDTO(ideaPreviews, isLastPage);
+        PreviewIdeaPageDTO ideaPage;
+        if (previews != null) {
+            ideaPage =
+                mapper.previewIdeaPageDTOFromIndex(
+                    previews,
+                    indexPage.isLastPage(),
+                    userId,
+                    database
+                );
+        } else {
+            DocumentPage<Idea> ideaResultsPage = database.getIdeaPageFromIds(
+                indexPage.getIdPage()
+            );
+            ideaPage =
+                mapper.previewIdeaPageDTO(ideaResultsPage, userId, database);
+        }
+        ideaPage.setTagCounts(indexPage.getTagCounts());
+        ideaPage.setCursor(indexPage.getNextCursor());
+        ideaPage.setTotalHits(indexPage.getTotalHits());
+        ideaPage.setTotalHitsExact(indexPage.isTotalHitsExact());
+        return ideaPage;
     }
 
+    /**
+     * Builds a page of project previews from the previews stored in the
+     * index, or from the database if any project on the page was indexed
+     * with an outdated preview.
+     */
     private PreviewProjectPageDTO getProjectPage(
-        List<String> idResults,
-        int page,
+        IndexPage indexPage,
         String userId
     ) {
-        boolean isLastPage = page * Database.ITEMS_PER_PAGE >= idResults.size();
-        DocumentPage<Project> projectResultsPage = database.getProjectPageFromIds(
-            new DocumentPage<>(clampIdListToPage(idResults, page), isLastPage),
-            page
+        List<IndexedProjectPreview> previews = readPreviews(
+            indexPage,
+            IndexedProjectPreview.class,
+            preview -> preview.getVersion() == IndexedProjectPreview.VERSION,
+            (preview, upvoteCount) -> preview.setUpvoteCount(upvoteCount)
         );
+        PreviewProjectPageDTO projectPage;
+        if (previews != null) {
+            projectPage =
+                mapper.previewProjectPageDTOFromIndex(
+                    previews,
+                    indexPage.isLastPage(),
+                    userId,
+                    database
+                );
+        } else {
+            DocumentPage<Project> projectResultsPage = database.getProjectPageFromIds(
+                indexPage.getIdPage()
+            );
+            projectPage =
+                mapper.previewProjectPageDTO(
+                    projectResultsPage,
+                    userId,
+                    database
+                );
+        }
+        projectPage.setTagCounts(indexPage.getTagCounts());
+        projectPage.setCursor(indexPage.getNextCursor());
+        projectPage.setTotalHits(indexPage.getTotalHits());
+        projectPage.setTotalHitsExact(indexPage.isTotalHitsExact());
+        return projectPage;
+    }
 
-        List<PreviewProjectDTO> projectPreviews = projectResultsPage
-            .getDocuments()
-            .stream()
-            .map(project -> mapper.previewProjectDTO(project, userId, database))
-            .collect(Collectors.toList());
-        return new PreviewProjectPageDTO(projectPreviews, isLastPage);
+    /**
+     * Parses the stored previews of the hits on a page.
+     * @return The previews, or null if any hit has no preview or one of
+     * an outdated version
+     */
+    private <T> List<T> readPreviews(
+        IndexPage indexPage,
+        Class<T> previewType,
+        Predicate<T> isCurrent,
+        ObjIntConsumer<T> setUpvoteCount
+    ) {
+        List<T> previews = new ArrayList<>();
+        for (IndexHit hit : indexPage.getHits()) {
+            if (hit.getPreview() == null) {
+                return null;
+            }
+            try {
+                T preview = objectMapper.readValue(
+                    hit.getPreview(),
+                    previewType
+                );
+                if (!isCurrent.test(preview)) {
+                    return null;
+                }
+                setUpvoteCount.accept(preview, hit.getUpvoteCount());
+                previews.add(preview);
+            } catch (JsonProcessingException e) {
+                logger.warn(
+                    "Failed to read stored preview of " + hit.getId(),
+                    e
+                );
+                return null;
+            }
+        }
+        return previews;
     }
 
-    private List<String> clampIdListToPage(List<String> ids, int page) {
-        return ids.subList(
-            clamp((page - 1) * Database.ITEMS_PER_PAGE, ids.size()),
-            clamp(page * Database.ITEMS_PER_PAGE, ids.size())
-        );
+    /**
+     * Reads the id, upvote count and stored preview of a range of hits.
+     * Hits are visited in document order, since doc values can only be
+     * read forwards.
+     */
+    private static List<IndexHit> readHits(
+        IndexSearcher indexSearcher,
+        ScoreDoc[] hits,
+        int from,
+        int to
+    ) throws IOException {
+        List<LeafReaderContext> leaves = indexSearcher
+            .getIndexReader()
+            .leaves();
+        Integer[] hitOrder = new Integer[Math.max(to - from, 0)];
+        for (int i = 0; i < hitOrder.length; i++) {
+            hitOrder[i] = from + i;
+        }
+        Arrays.sort(hitOrder, Comparator.comparingInt(i -> hits[i].doc));
+
+        IndexHit[] indexHits = new IndexHit[hitOrder.length];
+        int currentLeaf = -1;
+        SortedDocValues idValues = null;
+        NumericDocValues upvoteCounts = null;
+        for (int hit : hitOrder) {
+            int leafIndex = ReaderUtil.subIndex(hits[hit].doc, leaves);
+            LeafReaderContext leaf = leaves.get(leafIndex);
+            if (leafIndex != currentLeaf) {
+                idValues = DocValues.getSorted(leaf.reader(), "id");
+                upvoteCounts =
+                    DocValues.getNumeric(leaf.reader(), "upvoteCount");
+                currentLeaf = leafIndex;
+            }
+            int leafDoc = hits[hit].doc - leaf.docBase;
+            if (!idValues.advanceExact(leafDoc)) {
+                continue;
+            }
+            String id = idValues.lookupOrd(idValues.ordValue()).utf8ToString();
+            int upvoteCount = upvoteCounts.advanceExact(leafDoc)
+                ? (int) upvoteCounts.longValue()
+                : 0;
+            String preview = leaf
+                .reader()
+                .document(leafDoc, PREVIEW_FIELD)
+                .get("preview");
+            indexHits[hit - from] = new IndexHit(id, upvoteCount, preview);
+        }
+        return Arrays
+            .stream(indexHits)
+            .filter(indexHit -> indexHit != null)
+            .collect(Collectors.toList());
     }
 
     private List<String> tokenizeQuery(String query) {
@@ -430,9 +1331,13 @@ public class SearchController {
         }
     }
 
-    private int clamp(int value, int maximum) {
-        if (value < 0) return 0;
-        if (value > maximum) return maximum;
-        return value;
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class RelatedHitsKey {
+
+        private final String ideaId;
+        private final String index;
+        private final Object ideaReaderKey;
+        private final Object targetReaderKey;
     }
 }
@@ -0,0 +1,152 @@
+package com.herokuapp.projectideas.search;
+
+import com.herokuapp.projectideas.database.exception.InvalidCursorException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Opaque cursor to the page following a hit, holding the hit's sort
+ * values. Every sort ends with the unique document id, so the values
+ * identify the hit without its doc id, and cursors stay valid after the
+ * searcher is refreshed.
+ */
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+class SearchCursor {
+
+    private static final byte FLOAT = 'F';
+    private static final byte DOUBLE = 'D';
+    private static final byte LONG = 'J';
+    private static final byte BYTES = 'S';
+
+    @EqualsAndHashCode.Include
+    private final String cursor;
+
+    /**
+     * Sort values of the hit to search after
+     */
+    private final Object[] values;
+
+    /**
+     * @return The hit to search after with a searcher. Hits equal to the
+     * cursor in every sort value are the hit itself, so it is placed after
+     * every doc id, for them to be skipped too.
+     */
+    public FieldDoc getAfter(IndexSearcher indexSearcher) {
+        return new FieldDoc(
+            Math.max(indexSearcher.getIndexReader().maxDoc() - 1, 0),
+            Float.NaN,
+            values
+        );
+    }
+
+    /**
+     * Encodes the sort values of the last hit of a page as a URL safe
+     * cursor
+     */
+    public static String encode(FieldDoc hit) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(hit.fields.length);
+            for (Object value : hit.fields) {
+                if (value instanceof Float) {
+                    out.writeByte(FLOAT);
+                    out.writeFloat((Float) value);
+                } else if (value instanceof Double) {
+                    out.writeByte(DOUBLE);
+                    out.writeDouble((Double) value);
+                } else if (value instanceof Long) {
+                    out.writeByte(LONG);
+                    out.writeLong((Long) value);
+                } else if (value instanceof BytesRef) {
+                    BytesRef bytesRef = (BytesRef) value;
+                    out.writeByte(BYTES);
+                    out.writeShort(bytesRef.length);
+                    out.write(bytesRef.bytes, bytesRef.offset, bytesRef.length);
+                } else {
+                    throw new IllegalArgumentException(
+                        "Cannot encode sort value " + value
+                    );
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64
+            .getUrlEncoder()
+            .withoutPadding()
+            .encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes a cursor and the sort values of the hit to search after.
+     * @throws InvalidCursorException If the cursor is malformed or its
+     * values do not match the sort
+     */
+    public static SearchCursor decode(String cursor, Sort sort)
+        throws InvalidCursorException {
+        SortField[] sortFields = sort.getSort();
+        try (
+            DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor))
+            )
+        ) {
+            if (in.readByte() != sortFields.length) {
+                throw new InvalidCursorException(cursor);
+            }
+            Object[] values = new Object[sortFields.length];
+            for (int i = 0; i < values.length; i++) {
+                byte type = in.readByte();
+                if (type != getValueType(sortFields[i])) {
+                    throw new InvalidCursorException(cursor);
+                }
+                switch (type) {
+                    case FLOAT:
+                        values[i] = in.readFloat();
+                        break;
+                    case DOUBLE:
+                        values[i] = in.readDouble();
+                        break;
+                    case LONG:
+                        values[i] = in.readLong();
+                        break;
+                    default:
+                        byte[] value = new byte[in.readUnsignedShort()];
+                        in.readFully(value);
+                        values[i] = new BytesRef(value);
+                }
+            }
+            return new SearchCursor(cursor, values);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+    private static byte getValueType(SortField sortField) {
+        switch (sortField.getType()) {
+            case SCORE:
+                return FLOAT;
+            case LONG:
+                return LONG;
+            case STRING:
+                return BYTES;
+            default:
+                // Hotness is sorted by a double values source
+                return DOUBLE;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.herokuapp.projectideas.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Owns refreshing the idea, project, and tag searchers. Each searcher is
+ * refreshed by a background thread, so that index changes become
+ * searchable within the maximum staleness without searches having to
+ * refresh the searcher themselves. Searches only acquire and release
+ * searchers.
+ */
+@Component
+public class SearcherRefresher {
+
+    private final ControlledRealTimeReopenThread<IndexSearcher> ideaReopenThread;
+    private final ControlledRealTimeReopenThread<IndexSearcher> projectReopenThread;
+    private final ControlledRealTimeReopenThread<IndexSearcher> tagReopenThread;
+
+    public SearcherRefresher(
+        IndexWriter ideaIndexWriter,
+        IndexWriter projectIndexWriter,
+        IndexWriter tagIndexWriter,
+        SearcherManager ideaSearcherManager,
+        SearcherManager projectSearcherManager,
+        SearcherManager tagSearcherManager,
+        // Longest time before index changes become searchable
+        @Value(
+            "${projectideas.index.maxStalenessMs:1000}"
+        ) long maxStalenessMillis,
+        // Shortest time between refreshes when a caller is waiting for a
+        // change to become searchable
+        @Value(
+            "${projectideas.index.minStalenessMs:25}"
+        ) long minStalenessMillis,
+        MeterRegistry meterRegistry
+    ) {
+        this.ideaReopenThread =
+            startReopenThread(
+                "idea",
+                ideaIndexWriter,
+                ideaSearcherManager,
+                maxStalenessMillis,
+                minStalenessMillis,
+                meterRegistry
+            );
+        this.projectReopenThread =
+            startReopenThread(
+                "project",
+                projectIndexWriter,
+                projectSearcherManager,
+                maxStalenessMillis,
+                minStalenessMillis,
+                meterRegistry
+            );
+        this.tagReopenThread =
+            startReopenThread(
+                "tag",
+                tagIndexWriter,
+                tagSearcherManager,
+                maxStalenessMillis,
+                minStalenessMillis,
+                meterRegistry
+            );
+    }
+
+    /**
+     * Waits until searches see every change up to the given generations.
+     * @return Whether the generations became visible within the time limit
+     */
+    public boolean waitForGenerations(
+        IndexGenerations generations,
+        int maxWaitMillis
+    ) throws InterruptedException {
+        return (
+            waitForGeneration(
+                ideaReopenThread,
+                generations.getIdeaGeneration(),
+                maxWaitMillis
+            ) &&
+            waitForGeneration(
+                projectReopenThread,
+                generations.getProjectGeneration(),
+                maxWaitMillis
+            ) &&
+            waitForGeneration(
+                tagReopenThread,
+                generations.getTagGeneration(),
+                maxWaitMillis
+            )
+        );
+    }
+
+    /**
+     * @return The latest idea index generation visible to searches
+     */
+    public long getIdeaSearchingGeneration() {
+        return ideaReopenThread.getSearchingGen();
+    }
+
+    /**
+     * @return The latest project index generation visible to searches
+     */
+    public long getProjectSearchingGeneration() {
+        return projectReopenThread.getSearchingGen();
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        for (ControlledRealTimeReopenThread<IndexSearcher> reopenThread : List.of(
+            ideaReopenThread,
+            projectReopenThread,
+            tagReopenThread
+        )) {
+            reopenThread.close();
+        }
+    }
+
+    private boolean waitForGeneration(
+        ControlledRealTimeReopenThread<IndexSearcher> reopenThread,
+        long generation,
+        int maxWaitMillis
+    ) throws InterruptedException {
+        if (generation < 0) {
+            return true;
+        }
+        return reopenThread.waitForGeneration(generation, maxWaitMillis);
+    }
+
+    private static ControlledRealTimeReopenThread<IndexSearcher> startReopenThread(
+        String index,
+        IndexWriter indexWriter,
+        SearcherManager searcherManager,
+        long maxStalenessMillis,
+        long minStalenessMillis,
+        MeterRegistry meterRegistry
+    ) {
+        AtomicLong lastRefreshed = new AtomicLong(System.currentTimeMillis());
+        searcherManager.addListener(
+            new ReferenceManager.RefreshListener() {
+                @Override
+                public void beforeRefresh() {}
+
+                @Override
+                public void afterRefresh(boolean didRefresh) {
+                    if (didRefresh) {
+                        lastRefreshed.set(System.currentTimeMillis());
+                    }
+                }
+            }
+        );
+
+        ControlledRealTimeReopenThread<IndexSearcher> reopenThread = new ControlledRealTimeReopenThread<>(
+            indexWriter,
+            searcherManager,
+            maxStalenessMillis / 1000.0,
+            minStalenessMillis / 1000.0
+        );
+        reopenThread.setName("LuceneReopen-" + index);
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+
+        Gauge
+            .builder(
+                "projectideas.search.searcher.generation",
+                reopenThread,
+                thread -> thread.getSearchingGen()
+            )
+            .description("Index generation visible to searches")
+            .tag("index", index)
+            .register(meterRegistry);
+        Gauge
+            .builder(
+                "projectideas.search.searcher.age",
+                lastRefreshed,
+                refreshed ->
+                    (System.currentTimeMillis() - refreshed.get()) / 1000.0
+            )
+            .description("Seconds since the searcher last saw index changes")
+            .baseUnit("seconds")
+            .tag("index", index)
+            .register(meterRegistry);
+        return reopenThread;
+    }
+}
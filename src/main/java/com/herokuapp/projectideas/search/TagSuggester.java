@@ -0,0 +1,259 @@
+package com.herokuapp.projectideas.search;
+
+import com.herokuapp.projectideas.database.document.tag.Tag;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.fst.WFSTCompletionLookup;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Suggests tags completing a prefix, from an in-memory weighted FST of
+ * every tag of each type, weighted by the tag's usages. The FSTs are
+ * rebuilt from the tag index in the background whenever the tag searcher
+ * refreshes, so they follow tags being created and used. Rebuilds
+ * requested while one is waiting to run are coalesced into it.
+ */
+@Component
+public class TagSuggester {
+
+    private final SearcherManager tagSearcherManager;
+    private final Executor taskExecutor;
+
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    /**
+     * Suggestions of each tag type, by the type's class name
+     */
+    private volatile Map<String, Suggestions> suggestions = Map.of();
+
+    private static final Logger logger = LoggerFactory.getLogger(
+        TagSuggester.class
+    );
+
+    public TagSuggester(
+        SearcherManager tagSearcherManager,
+        Executor taskExecutor
+    ) {
+        this.tagSearcherManager = tagSearcherManager;
+        this.taskExecutor = taskExecutor;
+        tagSearcherManager.addListener(
+            new ReferenceManager.RefreshListener() {
+                @Override
+                public void beforeRefresh() {}
+
+                @Override
+                public void afterRefresh(boolean didRefresh) {
+                    if (didRefresh) {
+                        requestRebuild();
+                    }
+                }
+            }
+        );
+        requestRebuild();
+    }
+
+    /**
+     * @return Names of the most used tags of the type starting with the
+     * prefix, ignoring case
+     */
+    public <T extends Tag> List<String> suggest(
+        Class<T> classType,
+        String prefix,
+        int count
+    ) {
+        Suggestions typeSuggestions = suggestions.get(
+            classType.getSimpleName()
+        );
+        if (typeSuggestions == null || prefix.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return typeSuggestions
+                .lookup.lookup(prefix.toLowerCase(), false, count)
+                .stream()
+                .map(
+                    result -> typeSuggestions.names.get(result.key.toString())
+                )
+                .collect(Collectors.toList());
+        } catch (IOException e) {
+            logger.error("Failed to suggest tags", e);
+            return new ArrayList<>();
+        }
+    }
+
+    private void requestRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            taskExecutor.execute(
+                () -> {
+                    rebuildPending.set(false);
+                    rebuild();
+                }
+            );
+        }
+    }
+
+    private void rebuild() {
+        try {
+            Map<String, Map<String, TagEntry>> tagsByType = readTags();
+            Map<String, Suggestions> rebuilt = new HashMap<>();
+            for (String type : tagsByType.keySet()) {
+                rebuilt.put(type, buildSuggestions(tagsByType.get(type)));
+            }
+            suggestions = rebuilt;
+        } catch (IOException e) {
+            logger.error("Failed to rebuild tag suggestions", e);
+        }
+    }
+
+    /**
+     * Reads every indexed tag from the key and usages doc values, grouped
+     * by type and keyed by lowercase name
+     */
+    private Map<String, Map<String, TagEntry>> readTags() throws IOException {
+        Map<String, Map<String, TagEntry>> tagsByType = new HashMap<>();
+        IndexSearcher indexSearcher = tagSearcherManager.acquire();
+        try {
+            for (LeafReaderContext leaf : indexSearcher
+                .getIndexReader()
+                .leaves()) {
+                Bits liveDocs = leaf.reader().getLiveDocs();
+                SortedDocValues keys = DocValues.getSorted(
+                    leaf.reader(),
+                    "key"
+                );
+                NumericDocValues usages = DocValues.getNumeric(
+                    leaf.reader(),
+                    "usages"
+                );
+                for (
+                    int doc = keys.nextDoc();
+                    doc != DocIdSetIterator.NO_MORE_DOCS;
+                    doc = keys.nextDoc()
+                ) {
+                    if (liveDocs != null && !liveDocs.get(doc)) {
+                        continue;
+                    }
+                    // Keys are the tag type and name separated by a slash
+                    String key = keys
+                        .lookupOrd(keys.ordValue())
+                        .utf8ToString();
+                    int separator = key.indexOf('/');
+                    String name = key.substring(separator + 1);
+                    long weight = usages.advanceExact(doc)
+                        ? Math.max(usages.longValue(), 0)
+                        : 0;
+                    Map<String, TagEntry> tags = tagsByType.computeIfAbsent(
+                        key.substring(0, separator),
+                        type -> new HashMap<>()
+                    );
+                    // Names differing only in case share a suggestion
+                    String lowercaseName = name.toLowerCase();
+                    TagEntry existing = tags.get(lowercaseName);
+                    if (existing == null || existing.weight < weight) {
+                        tags.put(lowercaseName, new TagEntry(name, weight));
+                    }
+                }
+            }
+        } finally {
+            tagSearcherManager.release(indexSearcher);
+        }
+        return tagsByType;
+    }
+
+    private static Suggestions buildSuggestions(Map<String, TagEntry> tags)
+        throws IOException {
+        WFSTCompletionLookup lookup = new WFSTCompletionLookup(
+            new ByteBuffersDirectory(),
+            "tags"
+        );
+        Iterator<Map.Entry<String, TagEntry>> entries = tags
+            .entrySet()
+            .iterator();
+        lookup.build(
+            new InputIterator() {
+                private long weight;
+
+                @Override
+                public BytesRef next() {
+                    if (!entries.hasNext()) {
+                        return null;
+                    }
+                    Map.Entry<String, TagEntry> entry = entries.next();
+                    weight = entry.getValue().weight;
+                    return new BytesRef(entry.getKey());
+                }
+
+                @Override
+                public long weight() {
+                    return weight;
+                }
+
+                @Override
+                public BytesRef payload() {
+                    return null;
+                }
+
+                @Override
+                public boolean hasPayloads() {
+                    return false;
+                }
+
+                @Override
+                public Set<BytesRef> contexts() {
+                    return null;
+                }
+
+                @Override
+                public boolean hasContexts() {
+                    return false;
+                }
+            }
+        );
+        Map<String, String> names = new HashMap<>();
+        for (Map.Entry<String, TagEntry> entry : tags.entrySet()) {
+            names.put(entry.getKey(), entry.getValue().name);
+        }
+        return new Suggestions(lookup, names);
+    }
+
+    @AllArgsConstructor
+    private static class TagEntry {
+
+        private final String name;
+        private final long weight;
+    }
+
+    @AllArgsConstructor
+    private static class Suggestions {
+
+        private final Lookup lookup;
+        /**
+         * Tag names by the lowercase names the lookup completes
+         */
+        private final Map<String, String> names;
+    }
+}
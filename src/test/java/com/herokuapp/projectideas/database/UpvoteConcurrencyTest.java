@@ -0,0 +1,120 @@
+package com.herokuapp.projectideas.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.herokuapp.projectideas.database.document.post.Idea;
+import com.herokuapp.projectideas.database.document.user.User;
+import com.herokuapp.projectideas.email.EmailInterface;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Runs against the dev Cosmos account, so it only runs when one is
+ * configured.
+ */
+@SpringBootTest
+@ActiveProfiles("dev")
+@EnabledIfEnvironmentVariable(named = "COSMOSDB_URI", matches = ".+")
+public class UpvoteConcurrencyTest {
+
+    private static final int VOTERS = 20;
+
+    @Autowired
+    Database database;
+
+    @MockBean
+    EmailInterface emailInterface;
+
+    private final List<User> users = new ArrayList<>();
+    private Idea idea;
+
+    @AfterEach
+    public void cleanUp() {
+        if (idea != null) {
+            database.deleteIdea(idea);
+        }
+        for (User user : users) {
+            database.deleteUser(user.getUserId());
+        }
+    }
+
+    @Test
+    public void editRacingWithVotesKeepsEveryVote() throws Exception {
+        User author = createUser();
+        idea =
+            new Idea(
+                author.getUserId(),
+                author.getUsername(),
+                "Upvote concurrency test",
+                "Content",
+                new ArrayList<>()
+            );
+        database.createIdea(idea);
+        List<User> voters = new ArrayList<>();
+        for (int i = 0; i < VOTERS; i++) {
+            voters.add(createUser());
+        }
+
+        // Read before any vote, so the edit holds a stale count
+        Idea edit = database.getIdea(idea.getIdeaId());
+        edit.setTitle("Edited upvote concurrency test");
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (User voter : voters) {
+            tasks.add(
+                () -> {
+                    start.await();
+                    database.upvoteIdea(idea.getIdeaId(), voter.getUserId());
+                    return null;
+                }
+            );
+        }
+        tasks.add(
+            () -> {
+                start.await();
+                database.updateIdea(edit, new ArrayList<>(), new ArrayList<>());
+                return null;
+            }
+        );
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Idea result = database.getIdea(idea.getIdeaId());
+        assertEquals("Edited upvote concurrency test", result.getTitle());
+        // The author upvotes their own idea when it is created
+        assertEquals(VOTERS + 1, result.getUpvoteCount());
+    }
+
+    private User createUser() {
+        String name = "test-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = database.createUser(new User(name, name + "@example.com"));
+        users.add(user);
+        return user;
+    }
+}